@@ -0,0 +1,122 @@
+package ritopls;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Works out how long to wait before polling a region again when adaptive
+ * polling is selected.
+ *
+ * While every service in a region is online with no incidents the interval
+ * grows towards the ceiling, but only after several calm polls in a row so
+ * a single quiet poll in the middle of an outage doesn't slow things down.
+ * As soon as a status changes or a new incident update appears, the
+ * interval drops straight to the floor.  Each region keeps its own state.
+ *
+ * @author Chris Meyers
+ */
+public class AdaptivePollingPolicy {
+    private final int floor;
+    private final int ceiling;
+    private final HashMap<String, RegionState> regions;
+
+    /**
+     * AdaptivePollingPolicy constructor.
+     *
+     * @param floor The shortest interval (in seconds).
+     * @param ceiling The longest interval (in seconds).
+     */
+    public AdaptivePollingPolicy(int floor, int ceiling) {
+        this.floor = floor;
+        this.ceiling = ceiling;
+        this.regions = new HashMap<>();
+    }
+
+    /**
+     * AdaptivePollingPolicy constructor using the default floor and ceiling.
+     */
+    public AdaptivePollingPolicy() {
+        this(StaticData.ADAPTIVE_POLLING_FLOOR, StaticData.ADAPTIVE_POLLING_CEILING);
+    }
+
+    /**
+     * Records the latest snapshot of a region and works out the next
+     * polling interval for it.
+     *
+     * @param region The region that was polled.
+     * @param shard The latest snapshot of the region.
+     * @return The number of seconds to wait before polling the region again.
+     */
+    public synchronized int nextInterval(String region, Shard shard) {
+        String key = StaticData.internRegion(region);
+        RegionState state = regions.get(key);
+        if(state == null) {
+            state = new RegionState(Math.max(floor, Math.min(ceiling, StaticData.DEFAULT_POLLING_RATE)));
+            regions.put(key, state);
+        }
+
+        HashMap<String, Status> statuses = new HashMap<>();
+        HashSet<String> updateIds = new HashSet<>();
+        boolean calm = true;
+
+        for(Service service : shard.getServices()) {
+            statuses.put(service.getName(), service.getStatus());
+            for(IncidentUpdate update : service.getUpdates()) {
+                updateIds.add(update.getId());
+            }
+            if(service.getStatus() != Status.ONLINE || !service.getUpdates().isEmpty()) {
+                calm = false;
+            }
+        }
+
+        boolean changed = state.statuses != null
+                       && (!statuses.equals(state.statuses) || !state.updateIds.containsAll(updateIds));
+
+        if(changed) {
+            // Something happened, watch closely.
+            state.interval = floor;
+            state.calmPolls = 0;
+        }
+        else if(calm) {
+            state.calmPolls++;
+            if(state.calmPolls >= StaticData.ADAPTIVE_CALM_POLLS) {
+                state.interval = Math.min(ceiling, state.interval * 2);
+                state.calmPolls = 0;
+            }
+        }
+        else {
+            // Ongoing incidents with nothing new: hold the current interval.
+            state.calmPolls = 0;
+        }
+
+        state.statuses = statuses;
+        state.updateIds = updateIds;
+
+        return state.interval;
+    }
+
+    /**
+     * Gets the current interval for a region without recording a poll.
+     *
+     * @param region The region.
+     * @return The current interval (in seconds).
+     */
+    public synchronized int getInterval(String region) {
+        RegionState state = regions.get(StaticData.internRegion(region));
+        return state == null ? Math.max(floor, Math.min(ceiling, StaticData.DEFAULT_POLLING_RATE)) : state.interval;
+    }
+
+    /**
+     * Polling state of a single region.
+     */
+    private static class RegionState {
+        private int interval;
+        private int calmPolls;
+        private HashMap<String, Status> statuses;
+        private HashSet<String> updateIds;
+
+        RegionState(int interval) {
+            this.interval = interval;
+        }
+    }
+}
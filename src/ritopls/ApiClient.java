@@ -0,0 +1,386 @@
+package ritopls;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A shared HTTP client for the League of Legends API.
+ *
+ * HttpURLConnection already keeps idle connections (and their TLS sessions)
+ * alive between requests, but only when every response body is read to the
+ * end and closed.  This class makes sure that always happens, limits the
+ * number of concurrent connections per regional host, applies connect and
+ * read timeouts and keeps per-host request metrics.
+ *
+ * @author Chris Meyers
+ */
+public final class ApiClient {
+    public static final int MAX_CONNECTIONS_PER_HOST = 4;
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private static final int LATENCY_SAMPLES = 64;
+    private static final int MIN_LATENCY_SAMPLES = 10;
+
+    private static final ApiClient INSTANCE = new ApiClient(MAX_CONNECTIONS_PER_HOST);
+
+    private final int maxConnectionsPerHost;
+    private final ConcurrentHashMap<String, HostStats> hosts;
+
+    static {
+        // Keep-alive is on by default, but make sure nothing turned it off
+        // and that enough idle connections are cached for every host.
+        if(System.getProperty("http.keepAlive") == null) {
+            System.setProperty("http.keepAlive", "true");
+        }
+        if(System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", Integer.toString(MAX_CONNECTIONS_PER_HOST));
+        }
+    }
+
+    /**
+     * ApiClient constructor.
+     *
+     * @param maxPerHost The maximum number of concurrent connections per host.
+     */
+    private ApiClient(int maxPerHost) {
+        maxConnectionsPerHost = maxPerHost;
+        hosts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the shared ApiClient.
+     *
+     * @return The shared ApiClient instance.
+     */
+    public static ApiClient getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Performs a GET request and hands the response stream to a BodyReader.
+     * Whatever the reader leaves unread is drained afterwards so the
+     * connection can be reused.
+     *
+     * @param <T> The type the reader produces.
+     * @param url The URL to request.
+     * @param headers Request headers to send.
+     * @param reader Reads the response body.
+     * @return The response, with a null body if the server answered 304.
+     * @throws IOException if the request fails or the server returns an error.
+     */
+    public <T> ApiResponse<T> get(String url, Map<String, String> headers, BodyReader<T> reader) throws IOException {
+        URL target = new URL(url);
+        HostStats stats = getHostStats(target.getHost());
+
+        try {
+            stats.permits.acquire();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + target.getHost());
+        }
+
+        int inFlight = stats.inFlight.incrementAndGet();
+        stats.updatePeak(inFlight);
+        stats.requests.incrementAndGet();
+        long start = System.nanoTime();
+
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection)target.openConnection();
+            conn.setConnectTimeout(StaticData.CONNECT_TIMEOUT_MILLIS);
+            conn.setReadTimeout(StaticData.READ_TIMEOUT_MILLIS);
+            for(Map.Entry<String, String> header : headers.entrySet()) {
+                conn.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            int code = conn.getResponseCode();
+            T body = null;
+
+            if(code == HTTP_TOO_MANY_REQUESTS) {
+                // Not an error: the caller reads the rate limit headers and
+                // tries again later.
+                stats.rateLimited.incrementAndGet();
+                drain(conn.getErrorStream());
+                return new ApiResponse<>(code, body, null, null, getHeaders(conn));
+            }
+
+            if(code >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                drain(conn.getErrorStream());
+                throw new HttpStatusException(code, url);
+            }
+
+            try(CountingInputStream in = new CountingInputStream(conn.getInputStream())) {
+                if(code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    stats.notModified.incrementAndGet();
+                }
+                else {
+                    body = reader.read(in);
+                }
+                drain(in);
+                stats.bytes.addAndGet(in.getCount());
+            }
+            stats.recordLatency(System.nanoTime() - start);
+
+            return new ApiResponse<>(code, body, conn.getHeaderField("ETag"), conn.getHeaderField("Last-Modified"), getHeaders(conn));
+        }
+        catch(IOException e) {
+            stats.failures.incrementAndGet();
+            if(e instanceof SocketTimeoutException) {
+                stats.timeouts.incrementAndGet();
+            }
+            if(conn != null) {
+                // The error body has to be consumed as well, otherwise the
+                // connection can't go back into the keep-alive cache.
+                drain(conn.getErrorStream());
+            }
+            throw e;
+        }
+        finally {
+            stats.totalNanos.addAndGet(System.nanoTime() - start);
+            stats.inFlight.decrementAndGet();
+            stats.permits.release();
+        }
+    }
+
+    /**
+     * Collects the response headers of a connection.
+     *
+     * @param conn The connection.
+     * @return The last value of every header, keyed case-insensitively.
+     */
+    private Map<String, String> getHeaders(HttpURLConnection conn) {
+        TreeMap<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        for(Map.Entry<String, List<String>> header : conn.getHeaderFields().entrySet()) {
+            // The status line is stored under a null key.
+            if(header.getKey() != null && !header.getValue().isEmpty()) {
+                headers.put(header.getKey(), header.getValue().get(header.getValue().size() - 1));
+            }
+        }
+
+        return headers;
+    }
+
+    /**
+     * Discards the rest of a stream and closes it.
+     *
+     * @param in The stream to drain, may be null.
+     */
+    private void drain(InputStream in) {
+        if(in == null) {
+            return;
+        }
+
+        byte[] buffer = new byte[1024];
+        try {
+            while(in.read(buffer) != -1) {
+                // Discard.
+            }
+            in.close();
+        }
+        catch(IOException e) {}
+    }
+
+    /**
+     * Gets the statistics for a host, creating them if needed.
+     *
+     * @param host The host name.
+     * @return The statistics for the host.
+     */
+    private HostStats getHostStats(String host) {
+        HostStats stats = hosts.get(host);
+        if(stats == null) {
+            HostStats created = new HostStats(maxConnectionsPerHost);
+            stats = hosts.putIfAbsent(host, created);
+            if(stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Gets a percentile of the recent request latency to a host.
+     *
+     * @param host The host name.
+     * @param percentile The percentile, between 0 and 1.
+     * @return The latency in millis, or -1 if there aren't enough samples yet.
+     */
+    public long getLatencyPercentile(String host, double percentile) {
+        HostStats stats = hosts.get(host);
+        return stats == null ? -1 : stats.getLatencyPercentile(percentile);
+    }
+
+    /**
+     * Builds a human readable summary of the per-host metrics.
+     *
+     * @return A multi-line metrics report.
+     */
+    public String getMetricsReport() {
+        StringBuilder report = new StringBuilder();
+
+        for(Map.Entry<String, HostStats> entry : hosts.entrySet()) {
+            HostStats stats = entry.getValue();
+            long requests = stats.requests.get();
+            long avgMillis = requests == 0 ? 0 : stats.totalNanos.get() / requests / 1000000;
+
+            report.append(entry.getKey()).append('\n')
+                  .append("    requests: ").append(requests)
+                  .append(", not modified: ").append(stats.notModified.get())
+                  .append(", rate limited: ").append(stats.rateLimited.get())
+                  .append(", failures: ").append(stats.failures.get())
+                  .append(" (timeouts ").append(stats.timeouts.get()).append(")")
+                  .append(", p95: ").append(stats.getLatencyPercentile(0.95)).append("ms")
+                  .append(", avg: ").append(avgMillis).append("ms")
+                  .append(", in flight: ").append(stats.inFlight.get())
+                  .append(" (peak ").append(stats.peakInFlight.get()).append("/").append(maxConnectionsPerHost).append(")")
+                  .append(", bytes: ").append(stats.bytes.get())
+                  .append('\n');
+        }
+
+        if(report.length() == 0) {
+            report.append("No requests made yet.\n");
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Turns a response stream into a value.
+     *
+     * @param <T> The type of value produced.
+     */
+    public interface BodyReader<T> {
+        /**
+         * Reads the response body.  The stream is closed by ApiClient.
+         *
+         * @param in The response body stream.
+         * @return The value read from the body.
+         * @throws IOException
+         */
+        T read(InputStream in) throws IOException;
+    }
+
+    /**
+     * Thrown when the server answers with an error status code.
+     */
+    public static class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+        private final int code;
+
+        HttpStatusException(int code, String url) {
+            super("Server returned HTTP response code: " + code + " for URL: " + url);
+            this.code = code;
+        }
+
+        /**
+         * Gets the HTTP status code.
+         *
+         * @return The HTTP status code.
+         */
+        public int getCode() {
+            return code;
+        }
+    }
+
+    /**
+     * Counts the bytes read through it.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if(n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Connection limit and metrics for a single host.
+     */
+    private static class HostStats {
+        private final Semaphore permits;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong notModified = new AtomicLong();
+        private final AtomicLong rateLimited = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private int latencyCount;
+
+        HostStats(int maxConnections) {
+            permits = new Semaphore(maxConnections, true);
+        }
+
+        synchronized void recordLatency(long nanos) {
+            latencies[latencyCount % LATENCY_SAMPLES] = nanos / 1000000;
+            latencyCount++;
+        }
+
+        synchronized long getLatencyPercentile(double percentile) {
+            int size = Math.min(latencyCount, LATENCY_SAMPLES);
+            if(size < MIN_LATENCY_SAMPLES) {
+                return -1;
+            }
+
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted[Math.min(size - 1, (int)Math.ceil(percentile * size) - 1)];
+        }
+
+        void updatePeak(int current) {
+            int peak;
+            while(current > (peak = peakInFlight.get())) {
+                if(peakInFlight.compareAndSet(peak, current)) {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package ritopls;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Supplies the Riot API key.  The key is read once and kept in memory, so
+ * polling never touches the disk for it.
+ *
+ * The key comes from, in order: the ritopls.apiKey system property, the
+ * RIOT_API_KEY environment variable, or the first line of the key file
+ * (ritopls.apiKeyFile, defaulting to the bundled key.txt).  When the key
+ * comes from a file, the file is watched and the key is swapped in as soon
+ * as the file changes.  A change that leaves the file empty or unreadable
+ * keeps the previous key.
+ *
+ * @author Chris Meyers
+ */
+public class ApiKeyProvider {
+    public static final String KEY_PROPERTY = "ritopls.apiKey";
+    public static final String KEY_FILE_PROPERTY = "ritopls.apiKeyFile";
+    public static final String KEY_ENVIRONMENT_VARIABLE = "RIOT_API_KEY";
+    public static final String DEFAULT_KEY_FILE = "key.txt";
+
+    private static final ApiKeyProvider instance = new ApiKeyProvider();
+
+    private final AtomicReference<String> key = new AtomicReference<>();
+    private final AtomicLong reloads = new AtomicLong();
+    private String source;
+    private File keyFile;
+    private WatchService watcher;
+
+    private ApiKeyProvider() {}
+
+    /**
+     * Gets the shared key provider.
+     *
+     * @return the ApiKeyProvider instance.
+     */
+    public static ApiKeyProvider getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the API key, loading it on first use.
+     *
+     * @return The API key.
+     * @throws IOException if no key could be found.
+     */
+    public String getKey() throws IOException {
+        String current = key.get();
+        if(current != null) {
+            return current;
+        }
+
+        synchronized(this) {
+            if(key.get() == null) {
+                load();
+            }
+            return key.get();
+        }
+    }
+
+    /**
+     * Builds a human readable summary of where the key came from.
+     *
+     * @return A single line report.
+     */
+    public synchronized String getReport() {
+        return "api key source: " + (source == null ? "not loaded" : source)
+             + ", reloads: " + reloads.get() + '\n';
+    }
+
+    /**
+     * Stops watching the key file.
+     */
+    public synchronized void close() {
+        if(watcher != null) {
+            try {
+                watcher.close();
+            }
+            catch(IOException e) {}
+            watcher = null;
+        }
+    }
+
+    /**
+     * Loads the key from the first source that has one.
+     *
+     * @throws IOException if no source has a key.
+     */
+    private void load() throws IOException {
+        String value = System.getProperty(KEY_PROPERTY);
+        if(isValid(value)) {
+            key.set(value.trim());
+            source = "system property " + KEY_PROPERTY;
+            return;
+        }
+
+        value = System.getenv(KEY_ENVIRONMENT_VARIABLE);
+        if(isValid(value)) {
+            key.set(value.trim());
+            source = "environment variable " + KEY_ENVIRONMENT_VARIABLE;
+            return;
+        }
+
+        keyFile = findKeyFile();
+        if(keyFile == null) {
+            throw new IOException("No API key: set " + KEY_PROPERTY + ", " + KEY_ENVIRONMENT_VARIABLE + " or add " + DEFAULT_KEY_FILE);
+        }
+
+        value = readKeyFile(keyFile);
+        if(!isValid(value)) {
+            throw new IOException("API key file is empty: " + keyFile);
+        }
+        key.set(value);
+        source = "file " + keyFile.getPath();
+
+        watch(keyFile);
+    }
+
+    /**
+     * Finds the key file, either the one named by ritopls.apiKeyFile or the
+     * bundled one.
+     *
+     * @return The key file, or null if there is none.
+     */
+    private static File findKeyFile() {
+        String path = System.getProperty(KEY_FILE_PROPERTY);
+        if(path != null) {
+            File file = new File(path);
+            return file.isFile() ? file : null;
+        }
+
+        try {
+            File file = resources.ResourceLoader.getFile(DEFAULT_KEY_FILE);
+            return file.isFile() ? file : null;
+        }
+        catch(NullPointerException e) {
+            // The resource doesn't exist.
+            return null;
+        }
+    }
+
+    /**
+     * Reads the first line of the key file.
+     *
+     * @param file The key file.
+     * @return The trimmed key, or null if the file is empty.
+     * @throws IOException
+     */
+    private static String readKeyFile(File file) throws IOException {
+        try(BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            return line == null ? null : line.trim();
+        }
+    }
+
+    private static boolean isValid(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    /**
+     * Starts a daemon thread that reloads the key whenever the key file is
+     * created or modified.  If the file system can't be watched the key
+     * simply stays as it was loaded.
+     *
+     * @param file The key file.
+     */
+    private void watch(File file) {
+        final Path dir = file.getAbsoluteFile().getParentFile().toPath();
+        final Path name = file.toPath().getFileName();
+
+        try {
+            watcher = dir.getFileSystem().newWatchService();
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        catch(IOException | UnsupportedOperationException e) {
+            System.out.println("Not watching " + file + ": " + e);
+            return;
+        }
+
+        final WatchService service = watcher;
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while(true) {
+                        WatchKey watchKey = service.take();
+                        boolean changed = false;
+                        for(WatchEvent<?> event : watchKey.pollEvents()) {
+                            if(name.equals(event.context())) {
+                                changed = true;
+                            }
+                        }
+                        if(changed) {
+                            reload();
+                        }
+                        if(!watchKey.reset()) {
+                            break;
+                        }
+                    }
+                }
+                catch(InterruptedException | ClosedWatchServiceException e) {}
+            }
+        }, "API Key Watcher");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Re-reads the key file and swaps the new key in.
+     */
+    private void reload() {
+        try {
+            String value = readKeyFile(keyFile);
+            if(isValid(value)) {
+                if(!value.equals(key.getAndSet(value))) {
+                    reloads.incrementAndGet();
+                    System.out.println("Reloaded API key from " + keyFile);
+                }
+            }
+        }
+        catch(IOException e) {
+            // Probably caught the file mid-write; the next event retries.
+            System.out.println("Could not reload API key: " + e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ritopls;
+
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The result of a single ApiClient request: the status code, the response
+ * body and the cache validators sent by the server.
+ *
+ * @param <T> The type the response body was read into.
+ * @author Chris Meyers
+ */
+public class ApiResponse<T> {
+    private final int code;
+    private final T body;
+    private final String eTag;
+    private final String lastModified;
+    private final Map<String, String> headers;
+
+    /**
+     * ApiResponse constructor.
+     *
+     * @param code The HTTP status code.
+     * @param body The response body, null for a 304.
+     * @param eTag The ETag header, may be null.
+     * @param lastModified The Last-Modified header, may be null.
+     * @param headers All response headers, keyed case-insensitively.
+     */
+    ApiResponse(int code, T body, String eTag, String lastModified, Map<String, String> headers) {
+        this.code = code;
+        this.body = body;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.headers = Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Gets the HTTP status code.
+     *
+     * @return The HTTP status code.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Gets the response body.
+     *
+     * @return The response body.
+     */
+    public T getBody() {
+        return body;
+    }
+
+    /**
+     * Gets the ETag validator.
+     *
+     * @return The ETag header value, or null if none was sent.
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Gets the Last-Modified validator.
+     *
+     * @return The Last-Modified header value, or null if none was sent.
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Checks if the server answered a conditional request with 304.
+     *
+     * @return True if the cached copy is still current, false otherwise.
+     */
+    public boolean isNotModified() {
+        return code == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    /**
+     * Checks if the server rejected the request for exceeding a rate limit.
+     *
+     * @return True if the server answered 429, false otherwise.
+     */
+    public boolean isRateLimited() {
+        return code == ApiClient.HTTP_TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Gets a response header.
+     *
+     * @param name The header name, in any case.
+     * @return The header value, or null if it wasn't sent.
+     */
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+}
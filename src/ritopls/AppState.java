@@ -0,0 +1,277 @@
+package ritopls;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of everything the program knows: the selected
+ * region and polling settings, whether polling is on and the last known
+ * status and incidents of every region fetched so far.  The snapshots of
+ * other regions are kept so switching back to one can show it right away.
+ * Every change makes a new state through one of the "with" methods.
+ *
+ * @author Chris Meyers
+ */
+public class AppState {
+    private final String region;
+    private final int pollingRate;
+    private final boolean adaptive;
+    private final boolean polling;
+    private final boolean networkError;
+    private final Map<String, RegionSnapshot> snapshots;
+    private final String selectedService;
+
+    /**
+     * AppState constructor for the initial state.
+     *
+     * @param region The selected region.
+     * @param pollingRate The polling rate (in seconds).
+     */
+    public AppState(String region, int pollingRate) {
+        this(StaticData.internRegion(region), pollingRate, false, false, false,
+             Collections.<String, RegionSnapshot>emptyMap(), null);
+    }
+
+    private AppState(String region, int pollingRate, boolean adaptive, boolean polling, boolean networkError,
+                     Map<String, RegionSnapshot> snapshots, String selectedService) {
+        this.region = region;
+        this.pollingRate = pollingRate;
+        this.adaptive = adaptive;
+        this.polling = polling;
+        this.networkError = networkError;
+        this.snapshots = snapshots;
+        this.selectedService = selectedService;
+    }
+
+    /**
+     * Gets the selected region.
+     *
+     * @return The lower case region.
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Gets the fixed polling rate, used when not polling adaptively.
+     *
+     * @return The polling rate (in seconds).
+     */
+    public int getPollingRate() {
+        return pollingRate;
+    }
+
+    /**
+     * Checks if the polling rate adapts to each region's activity.
+     *
+     * @return True if polling adaptively.
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Checks if polling is on.
+     *
+     * @return True if polling.
+     */
+    public boolean isPolling() {
+        return polling;
+    }
+
+    /**
+     * Checks if polling was stopped because of a network error.
+     *
+     * @return True after a network error, until polling is turned on again.
+     */
+    public boolean hasNetworkError() {
+        return networkError;
+    }
+
+    /**
+     * Gets the last known snapshot of a region.
+     *
+     * @param r The region.
+     * @return The snapshot, or null if the region hasn't been fetched.
+     */
+    public RegionSnapshot getSnapshot(String r) {
+        return snapshots.get(StaticData.internRegion(r));
+    }
+
+    /**
+     * Gets the last known snapshot of every region.
+     *
+     * @return Snapshots keyed by lower case region.
+     */
+    public Map<String, RegionSnapshot> getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Gets the latest status of a region.
+     *
+     * @param r The region.
+     * @return The latest status, or null if the region hasn't been fetched.
+     */
+    public Shard getStatus(String r) {
+        RegionSnapshot snapshot = getSnapshot(r);
+        return snapshot == null ? null : snapshot.getStatus();
+    }
+
+    /**
+     * Gets the latest status of the selected region.
+     *
+     * @return The latest status, or null if the region hasn't been fetched.
+     */
+    public Shard getCurrentStatus() {
+        RegionSnapshot snapshot = snapshots.get(region);
+        return snapshot == null ? null : snapshot.getStatus();
+    }
+
+    /**
+     * Gets the incidents shown for the selected region.
+     *
+     * @return Incident updates keyed by service name, empty when not
+     *         polling.
+     */
+    public Map<String, List<IncidentUpdate>> getIncidents() {
+        RegionSnapshot snapshot = snapshots.get(region);
+        if(!polling || snapshot == null) {
+            return Collections.emptyMap();
+        }
+        return snapshot.getIncidents();
+    }
+
+    /**
+     * Gets the service whose incidents are being shown.
+     *
+     * @return The service name, or null if none is selected.
+     */
+    public String getSelectedService() {
+        return selectedService;
+    }
+
+    /**
+     * Checks if every service of the selected region is online.
+     *
+     * @return True if all services are online or nothing is known yet.
+     */
+    public boolean isAllOnline() {
+        Shard status = getCurrentStatus();
+        if(!polling || status == null) {
+            return true;
+        }
+        for(Service service : status.getServices()) {
+            if(service.getStatus() != Status.ONLINE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Selects a different region.  Its last known snapshot, if any, is
+     * shown until it is polled again; the selected service is cleared.
+     *
+     * @param r The new region.
+     * @return The new state.
+     */
+    public AppState withRegion(String r) {
+        return new AppState(StaticData.internRegion(r), pollingRate, adaptive, polling, networkError, snapshots, null);
+    }
+
+    /**
+     * Sets a fixed polling rate, turning adaptive polling off.
+     *
+     * @param rate The polling rate (in seconds).
+     * @return The new state.
+     */
+    public AppState withPollingRate(int rate) {
+        return new AppState(region, rate, false, polling, networkError, snapshots, selectedService);
+    }
+
+    /**
+     * Turns adaptive polling on or off.  The fixed polling rate is kept for
+     * when it is turned off.
+     *
+     * @param a True to poll adaptively.
+     * @return The new state.
+     */
+    public AppState withAdaptive(boolean a) {
+        return new AppState(region, pollingRate, a, polling, networkError, snapshots, selectedService);
+    }
+
+    /**
+     * Turns polling on or off.  Turning it on clears any network error;
+     * turning it off hides the incidents.
+     *
+     * @param p True to poll.
+     * @return The new state.
+     */
+    public AppState withPolling(boolean p) {
+        if(p) {
+            return new AppState(region, pollingRate, adaptive, true, false, snapshots, selectedService);
+        }
+        return new AppState(region, pollingRate, adaptive, false, networkError, snapshots, null);
+    }
+
+    /**
+     * Stops polling because of a network error.
+     *
+     * @return The new state.
+     */
+    public AppState withNetworkError() {
+        return new AppState(region, pollingRate, adaptive, false, true, snapshots, null);
+    }
+
+    /**
+     * Stores the latest snapshot of a region.  The selected service is
+     * kept only if it still has incidents.
+     *
+     * @param r The region that was fetched.
+     * @param snapshot The latest snapshot.
+     * @return The new state.
+     */
+    public AppState withSnapshot(String r, RegionSnapshot snapshot) {
+        String key = StaticData.internRegion(r);
+        HashMap<String, RegionSnapshot> updated = new HashMap<>(snapshots);
+        updated.put(key, snapshot);
+
+        String selected = selectedService;
+        if(key.equals(region) && selected != null && !snapshot.getIncidents().containsKey(selected)) {
+            selected = null;
+        }
+        return new AppState(region, pollingRate, adaptive, polling, networkError,
+                            Collections.unmodifiableMap(updated), selected);
+    }
+
+    /**
+     * Records that the API confirmed a region's snapshot without changes.
+     *
+     * @param r The region that was fetched.
+     * @param time When it was confirmed.
+     * @return The new state, or this one if the region has no snapshot.
+     */
+    public AppState withConfirmed(String r, long time) {
+        RegionSnapshot snapshot = getSnapshot(r);
+        if(snapshot == null) {
+            return this;
+        }
+        return withSnapshot(r, snapshot.confirmedAt(time));
+    }
+
+    /**
+     * Selects the service whose incidents are shown.
+     *
+     * @param service The service name, or null for none.
+     * @return The new state.
+     */
+    public AppState withSelectedService(String service) {
+        if(service == null ? selectedService == null : service.equals(selectedService)) {
+            return this;
+        }
+        return new AppState(region, pollingRate, adaptive, polling, networkError, snapshots, service);
+    }
+}
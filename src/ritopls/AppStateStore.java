@@ -0,0 +1,93 @@
+package ritopls;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current AppState and tells subscribers when it changes.
+ *
+ * Changes are applied with compare-and-set, so any thread may update the
+ * store without locks and every reader sees a complete snapshot.
+ * Listeners are called on the thread that made the change; UI listeners
+ * hand the work to the EDT themselves.
+ *
+ * @author Chris Meyers
+ */
+public class AppStateStore {
+    private final AtomicReference<AppState> state;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Works out a new state from the current one.  May be called more than
+     * once if another thread changes the state at the same time, so it
+     * must not have side effects.
+     */
+    public interface Updater {
+        AppState apply(AppState current);
+    }
+
+    /**
+     * Told about every change of the state.
+     */
+    public interface Listener {
+        void stateChanged(AppState previous, AppState current);
+    }
+
+    /**
+     * AppStateStore constructor.
+     *
+     * @param initial The initial state.
+     */
+    public AppStateStore(AppState initial) {
+        state = new AtomicReference<>(initial);
+    }
+
+    /**
+     * Gets the current state.
+     *
+     * @return The current snapshot.
+     */
+    public AppState get() {
+        return state.get();
+    }
+
+    /**
+     * Applies a change and tells every listener about it.
+     *
+     * @param updater Works out the new state.
+     * @return The new state.
+     */
+    public AppState update(Updater updater) {
+        AppState previous;
+        AppState current;
+        do {
+            previous = state.get();
+            current = updater.apply(previous);
+        } while(!state.compareAndSet(previous, current));
+
+        if(current != previous) {
+            for(Listener l : listeners) {
+                l.stateChanged(previous, current);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Adds a listener that is told about every change of the state.
+     *
+     * @param l The listener.
+     */
+    public void subscribe(Listener l) {
+        listeners.add(l);
+    }
+
+    /**
+     * Removes a listener added with subscribe.
+     *
+     * @param l The listener.
+     */
+    public void unsubscribe(Listener l) {
+        listeners.remove(l);
+    }
+}
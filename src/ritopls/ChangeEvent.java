@@ -0,0 +1,170 @@
+package ritopls;
+
+/**
+ * One change between two snapshots of a region, as found by SnapshotDiff.
+ *
+ * @author Chris Meyers
+ */
+public final class ChangeEvent {
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        STATUS_CHANGED,
+        INCIDENT_OPENED,
+        UPDATE_APPENDED,
+        INCIDENT_RESOLVED
+    }
+
+    private final Type type;
+    private final String region;
+    private final String service;
+    private final Status from;
+    private final Status to;
+    private final Incident incident;
+    private final IncidentUpdate update;
+
+    private ChangeEvent(Type type, String region, String service, Status from, Status to,
+                        Incident incident, IncidentUpdate update) {
+        this.type = type;
+        this.region = region;
+        this.service = service;
+        this.from = from;
+        this.to = to;
+        this.incident = incident;
+        this.update = update;
+    }
+
+    /**
+     * A service went from one status to another.
+     *
+     * @param region The region.
+     * @param service The service name.
+     * @param from The old status, or null if the service is new.
+     * @param to The new status.
+     * @return The event.
+     */
+    public static ChangeEvent statusChanged(String region, String service, Status from, Status to) {
+        return new ChangeEvent(Type.STATUS_CHANGED, region, service, from, to, null, null);
+    }
+
+    /**
+     * An incident was reported for the first time.
+     *
+     * @param region The region.
+     * @param service The service name.
+     * @param incident The new incident.
+     * @return The event.
+     */
+    public static ChangeEvent incidentOpened(String region, String service, Incident incident) {
+        return new ChangeEvent(Type.INCIDENT_OPENED, region, service, null, null, incident, null);
+    }
+
+    /**
+     * An incident got an update it didn't have before.
+     *
+     * @param region The region.
+     * @param service The service name.
+     * @param incident The incident.
+     * @param update The new update.
+     * @return The event.
+     */
+    public static ChangeEvent updateAppended(String region, String service, Incident incident, IncidentUpdate update) {
+        return new ChangeEvent(Type.UPDATE_APPENDED, region, service, null, null, incident, update);
+    }
+
+    /**
+     * An incident is no longer reported or no longer active.
+     *
+     * @param region The region.
+     * @param service The service name.
+     * @param incident The incident as last reported.
+     * @return The event.
+     */
+    public static ChangeEvent incidentResolved(String region, String service, Incident incident) {
+        return new ChangeEvent(Type.INCIDENT_RESOLVED, region, service, null, null, incident, null);
+    }
+
+    /**
+     * Gets the kind of change.
+     *
+     * @return The type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the region that changed.
+     *
+     * @return The lower case region.
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Gets the service that changed.
+     *
+     * @return The service name.
+     */
+    public String getService() {
+        return service;
+    }
+
+    /**
+     * Gets the old status of a STATUS_CHANGED event.
+     *
+     * @return The old status, or null if there was none.
+     */
+    public Status getFrom() {
+        return from;
+    }
+
+    /**
+     * Gets the new status of a STATUS_CHANGED event.
+     *
+     * @return The new status, or null for other events.
+     */
+    public Status getTo() {
+        return to;
+    }
+
+    /**
+     * Gets the incident of an incident event.
+     *
+     * @return The incident, or null for a STATUS_CHANGED event.
+     */
+    public Incident getIncident() {
+        return incident;
+    }
+
+    /**
+     * Gets the update of an UPDATE_APPENDED event.
+     *
+     * @return The new update, or null for other events.
+     */
+    public IncidentUpdate getUpdate() {
+        return update;
+    }
+
+    /**
+     * Describes the event in one line for the log and the tray.
+     *
+     * @return The description.
+     */
+    @Override
+    public String toString() {
+        String area = "[" + StaticData.displayRegion(region) + " " + service + "] ";
+        switch(type) {
+            case STATUS_CHANGED:
+                return area + (from == null ? "" : from.getDisplayName() + " -> ") + to.getDisplayName();
+            case INCIDENT_OPENED:
+                return area + "Incident " + incident.getId() + " opened";
+            case UPDATE_APPENDED:
+                return area + "Incident " + incident.getId() + " :: " + update.getSeverity().getDisplayName() + " :: " + update.getContent();
+            default:
+                return area + "Incident " + incident.getId() + " resolved";
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ritopls;
+
+/**
+ * Collects runtime metrics from the different parts of the program into a
+ * single report that can be shown from the Debug menu.
+ *
+ * @author Chris Meyers
+ */
+public class Diagnostics {
+
+    /**
+     * Builds the diagnostics report.
+     *
+     * @param gui The current GUI instance.
+     * @return A multi-line diagnostics report.
+     */
+    public static String buildReport(GUI gui) {
+        StringBuilder report = new StringBuilder();
+
+        report.append("== Polling ==\n");
+        report.append("scheduler: ").append(gui.getPollScheduler().getDescription()).append('\n');
+        report.append(gui.getParser().getPollStats().getReport());
+
+        report.append("\n== Regions ==\n");
+        MultiRegionSnapshot combined = gui.getStatusHandler().getRegionSnapshot();
+        if(combined != null) {
+            report.append("last all-regions cycle: ").append(combined.getResults().size()).append(" regions, ")
+                  .append(combined.getStatuses().size()).append(" answered, ")
+                  .append(combined.getElapsedMillis()).append("ms\n");
+        }
+        AppState state = gui.getStore().get();
+        for(String region : StaticData.getRegions()) {
+            RegionSnapshot snapshot = state.getSnapshot(StaticData.internRegion(region));
+            report.append(region).append(": ");
+            report.append(snapshot == null ? "no snapshot" : "confirmed " + snapshot.getAgeText() + " ago").append('\n');
+        }
+
+        report.append("\n== HTTP ==\n");
+        report.append(ApiClient.getInstance().getMetricsReport());
+        report.append(gui.getParser().getRequestExecutor().getReport());
+        report.append(gui.getParser().getSingleFlight().getReport());
+
+        report.append("\n== Rate Limits ==\n");
+        report.append(ApiKeyProvider.getInstance().getReport());
+        report.append(gui.getParser().getScheduler().getReport());
+
+        report.append("\n== Latency ==\n");
+        report.append(gui.getLatencyMonitor().getReport());
+
+        report.append("\n== Incidents ==\n");
+        report.append(gui.getStatusHandler().getIncidentReport());
+
+        report.append("\n== Rendering ==\n");
+        report.append(gui.getStatusHandler().getRenderPipeline().getReport());
+        report.append(gui.getEventBindings().getReport());
+
+        return report.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package ritopls;
+
+import java.awt.event.ActionListener;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.AbstractButton;
+
+/**
+ * Binds one ActionListener per button.  Binding a button again replaces
+ * its listener instead of adding another one, so redrawing the window can
+ * never pile up listeners.  Only used on the EDT.
+ *
+ * @author Chris Meyers
+ */
+public class EventBindings {
+    private final Map<AbstractButton, ActionListener> bound = new LinkedHashMap<>();
+    private long binds;
+
+    /**
+     * Makes a listener the only one this class has on a button.
+     *
+     * @param button The button to bind.
+     * @param listener The listener to run when the button is pressed.
+     */
+    public void bind(AbstractButton button, ActionListener listener) {
+        ActionListener old = bound.put(button, listener);
+        if(old != null) {
+            button.removeActionListener(old);
+        }
+        button.addActionListener(listener);
+        binds++;
+    }
+
+    /**
+     * Counts the ActionListeners on every bound button, including any not
+     * added through this class.
+     *
+     * @return The number of listeners.
+     */
+    public int getListenerCount() {
+        int count = 0;
+        for(AbstractButton button : bound.keySet()) {
+            count += button.getActionListeners().length;
+        }
+        return count;
+    }
+
+    /**
+     * Builds a short report of the bindings for the diagnostics window.
+     *
+     * @return A multi-line report.
+     */
+    public String getReport() {
+        return "bound buttons: " + bound.size() + '\n'
+             + "action listeners: " + getListenerCount() + '\n'
+             + "binds: " + binds + '\n';
+    }
+}
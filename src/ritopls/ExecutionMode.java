@@ -0,0 +1,171 @@
+package ritopls;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the kind of threads the poll loops, probes and API requests run on.
+ *
+ * PLATFORM, the default, runs the poll loops and probes on PollScheduler's
+ * bounded pool of platform workers and every request on a pooled platform
+ * thread.  VIRTUAL, turned on with -Dritopls.virtualThreads=true, gives
+ * every poll loop, probe task and request a virtual thread of its own, so
+ * the blocking URLConnection code scales to many sources without being
+ * rewritten as async code.  Virtual threads need Java 21; they are
+ * looked up by reflection so the program still builds and runs on older
+ * Java versions, where VIRTUAL falls back to PLATFORM.
+ *
+ * @author Chris Meyers
+ */
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL;
+
+    /**
+     * Gets the mode selected by the ritopls.virtualThreads property.
+     *
+     * @return VIRTUAL if asked for and available, PLATFORM otherwise.
+     */
+    public static ExecutionMode current() {
+        if(StaticData.VIRTUAL_THREADS) {
+            if(isVirtualSupported()) {
+                return VIRTUAL;
+            }
+            System.out.println("Virtual threads need Java 21 or later, using platform threads");
+        }
+        return PLATFORM;
+    }
+
+    /**
+     * Checks if this Java version has virtual threads.
+     *
+     * @return True if virtual threads can be made.
+     */
+    public static boolean isVirtualSupported() {
+        return virtualThreadFactory("probe") != null;
+    }
+
+    /**
+     * Makes the scheduler for the periodic tasks.
+     *
+     * @return A new scheduler.
+     */
+    public TaskScheduler newScheduler() {
+        if(this == VIRTUAL) {
+            return new ThreadPerTaskScheduler(newThreadFactory("Virtual Poller "), "one virtual thread per task");
+        }
+        return new PollScheduler();
+    }
+
+    /**
+     * Makes the executor that blocking requests run on.
+     *
+     * @param prefix The thread name prefix.
+     * @return A cached pool of platform threads in PLATFORM mode, a new
+     *         virtual thread per task in VIRTUAL mode.
+     */
+    public ExecutorService newTaskExecutor(String prefix) {
+        ThreadFactory factory = newThreadFactory(prefix);
+        if(this == VIRTUAL) {
+            ExecutorService perTask = newThreadPerTaskExecutor(factory);
+            if(perTask != null) {
+                return perTask;
+            }
+        }
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * Describes the threads requests run on, for the Diagnostics window.
+     *
+     * @return A short description.
+     */
+    public String getRequestDescription() {
+        return this == VIRTUAL ? "one virtual thread per request" : "pooled platform threads";
+    }
+
+    /**
+     * Makes the executor that fetches several regions at once.
+     *
+     * @param maxThreads The pool size in PLATFORM mode.
+     * @param prefix The thread name prefix.
+     * @return A fixed pool in PLATFORM mode, a new virtual thread per
+     *         fetch in VIRTUAL mode.
+     */
+    public ExecutorService newFetchExecutor(int maxThreads, String prefix) {
+        ThreadFactory factory = newThreadFactory(prefix);
+        if(this == VIRTUAL) {
+            ExecutorService perTask = newThreadPerTaskExecutor(factory);
+            if(perTask != null) {
+                return perTask;
+            }
+        }
+        return Executors.newFixedThreadPool(maxThreads, factory);
+    }
+
+    /**
+     * Calls Executors.newThreadPerTaskExecutor by reflection.
+     *
+     * @param factory The factory that makes a thread for every task.
+     * @return The executor, or null if this Java version doesn't have it.
+     */
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory factory) {
+        try {
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService)perTask.invoke(null, factory);
+        }
+        catch(ReflectiveOperationException | RuntimeException e) {
+            System.out.println(e);
+            return null;
+        }
+    }
+
+    /**
+     * Makes a factory for threads of this mode.  Platform threads are
+     * daemon threads.
+     *
+     * @param prefix The thread name prefix.
+     * @return A new thread factory.
+     */
+    public ThreadFactory newThreadFactory(final String prefix) {
+        if(this == VIRTUAL) {
+            ThreadFactory factory = virtualThreadFactory(prefix);
+            if(factory != null) {
+                return factory;
+            }
+        }
+
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, prefix + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Builds Thread.ofVirtual().name(prefix, 1).factory() by reflection.
+     *
+     * @param prefix The thread name prefix.
+     * @return The factory, or null if virtual threads aren't available.
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, prefix, 1L);
+            return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+        }
+        catch(ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
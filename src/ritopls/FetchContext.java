@@ -0,0 +1,123 @@
+package ritopls;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-region state kept between polls: the cache validators of the last
+ * response, a hash of the last body, the status parsed from it and whether
+ * the last poll reached the server.  Lets
+ * StatusParser skip the download (304) when nothing has changed, and hand
+ * back the cached status when the same body is sent again.
+ *
+ * All of it is held in one immutable Entry behind an AtomicReference, so a
+ * new response is published in a single step and readers on other threads
+ * never see the validators of one response with the status of another.
+ *
+ * @author Chris Meyers
+ */
+public class FetchContext {
+    private final AtomicReference<Entry> entry = new AtomicReference<>(new Entry(null, null, null, null));
+    private volatile boolean networkUp = true;
+
+    /**
+     * Checks if the last poll of the region reached its server.
+     *
+     * @return False if it couldn't connect, true otherwise or before the
+     *         first poll.
+     */
+    public boolean isNetworkUp() {
+        return networkUp;
+    }
+
+    /**
+     * Records whether the last poll of the region reached its server.
+     *
+     * @param up False if it couldn't connect.
+     */
+    public void setNetworkUp(boolean up) {
+        networkUp = up;
+    }
+
+    /**
+     * Gets the ETag of the last response.
+     *
+     * @return The ETag, or null if none is known.
+     */
+    public String getETag() {
+        return entry.get().eTag;
+    }
+
+    /**
+     * Gets the Last-Modified value of the last response.
+     *
+     * @return The Last-Modified value, or null if none is known.
+     */
+    public String getLastModified() {
+        return entry.get().lastModified;
+    }
+
+    /**
+     * Gets the status parsed from the last response.
+     *
+     * @return The cached status, or null if nothing has been parsed yet.
+     */
+    public Shard getStatus() {
+        return entry.get().status;
+    }
+
+    /**
+     * Publishes a newly parsed response.  If the body is the same one the
+     * cached status came from, the cached status is kept so callers can
+     * tell nothing changed.
+     *
+     * @param hash The hash of the body.
+     * @param parsed The status parsed from the body.
+     * @param eTag The ETag header value.
+     * @param lastModified The Last-Modified header value.
+     * @return The status now held by the context.
+     */
+    public Shard publish(byte[] hash, Shard parsed, String eTag, String lastModified) {
+        while(true) {
+            Entry current = entry.get();
+            Shard status = current.status != null && Arrays.equals(current.bodyHash, hash) ? current.status : parsed;
+            if(entry.compareAndSet(current, new Entry(eTag, lastModified, hash, status))) {
+                return status;
+            }
+        }
+    }
+
+    /**
+     * Creates the digest used to hash response bodies.
+     *
+     * @return A new SHA-1 MessageDigest.
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch(NoSuchAlgorithmException e) {
+            // Every JRE is required to support SHA-1.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Everything known about the last response, published as a whole.
+     */
+    private static class Entry {
+        private final String eTag;
+        private final String lastModified;
+        private final byte[] bodyHash;
+        private final Shard status;
+
+        Entry(String eTag, String lastModified, byte[] bodyHash, Shard status) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.bodyHash = bodyHash;
+            this.status = status;
+        }
+    }
+}
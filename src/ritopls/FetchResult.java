@@ -0,0 +1,140 @@
+package ritopls;
+
+import java.io.IOException;
+
+/**
+ * The outcome of polling one region: the snapshot that should be shown, or
+ * the reason there isn't one.
+ *
+ * @author Chris Meyers
+ */
+public final class FetchResult {
+
+    /**
+     * How a poll ended.
+     */
+    public enum Outcome {
+        /** A new snapshot was downloaded and parsed. */
+        UPDATED,
+        /** The server reported no change; the cached snapshot is current. */
+        UNCHANGED,
+        /** The server throttled the request; the cached snapshot is shown. */
+        RATE_LIMITED,
+        /** The request ran past its deadline or a socket timeout. */
+        TIMEOUT,
+        /** The server answered with an error status code. */
+        HTTP_ERROR,
+        /** The response wasn't valid shard-data. */
+        PARSE_ERROR,
+        /** The host couldn't be reached. */
+        NETWORK_ERROR,
+        /** Polling was stopped or the region changed mid-request. */
+        INTERRUPTED
+    }
+
+    private final Outcome outcome;
+    private final Shard shard;
+    private final IOException error;
+    private final long latencyMillis;
+    private final int requests;
+
+    /**
+     * FetchResult constructor.
+     *
+     * @param outcome How the poll ended.
+     * @param shard The snapshot to show, may be null.
+     * @param error The error that ended the poll, may be null.
+     * @param latencyMillis How long the poll took.
+     * @param requests The number of requests the poll sent.
+     */
+    FetchResult(Outcome outcome, Shard shard, IOException error, long latencyMillis, int requests) {
+        this.outcome = outcome;
+        this.shard = shard;
+        this.error = error;
+        this.latencyMillis = latencyMillis;
+        this.requests = requests;
+    }
+
+    /**
+     * FetchResult constructor for a poll that sent no requests.
+     *
+     * @param outcome How the poll ended.
+     * @param shard The snapshot to show, may be null.
+     * @param error The error that ended the poll, may be null.
+     * @param latencyMillis How long the poll took.
+     */
+    FetchResult(Outcome outcome, Shard shard, IOException error, long latencyMillis) {
+        this(outcome, shard, error, latencyMillis, 0);
+    }
+
+    /**
+     * Makes a copy for a caller that shared this poll with the caller that
+     * ran it.
+     *
+     * @return The same outcome, without any requests.
+     */
+    FetchResult shared() {
+        return new FetchResult(outcome, shard, error, latencyMillis, 0);
+    }
+
+    /**
+     * Gets how the poll ended.
+     *
+     * @return The outcome.
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Gets the snapshot to show.
+     *
+     * @return The snapshot, or null if the poll failed.
+     */
+    public Shard getShard() {
+        return shard;
+    }
+
+    /**
+     * Gets the error that ended the poll.
+     *
+     * @return The error, or null if the poll succeeded.
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Gets how long the poll took.
+     *
+     * @return The latency in millis.
+     */
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * Gets the number of requests this poll sent, counting hedged requests
+     * and retries after a 429.
+     *
+     * @return The number of requests, 0 for a poll shared with another
+     *         caller or served from the debug file.
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    /**
+     * Checks if the poll produced a snapshot to show.
+     *
+     * @return True if there is a snapshot, false otherwise.
+     */
+    public boolean hasShard() {
+        return shard != null;
+    }
+
+    @Override
+    public String toString() {
+        return outcome + " in " + latencyMillis + "ms, " + requests + " requests" + (error == null ? "" : " (" + error + ")");
+    }
+}
@@ -13,11 +13,18 @@ import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JToggleButton;
 import javax.swing.SwingConstants;
+import javax.swing.Timer;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.plaf.basic.ComboPopup;
 
 /**
  * This class provides a GUI interface that reflects the status of League of Legends 
@@ -26,16 +33,19 @@ import javax.swing.filechooser.FileNameExtensionFilter;
  * @author Chris Meyers
  */
 public class GUI extends javax.swing.JFrame {
-    private String region;
+    private final AppStateStore store;
+    private final SnapshotStore snapshotStore;
     private final StatusParser parser;
-    private StatusHandler handler;
+    private final MultiRegionFetcher regionFetcher;
+    private final StatusHandler handler;
     private NotificationTray notif;
-    private int pollingRate;
+    private final AdaptivePollingPolicy pollingPolicy;
+    private final TaskScheduler pollScheduler;
+    private final LatencyMonitor latencyMonitor;
     private final JLabel[] serviceLabels;
     private final JLabel[] statusLabels;
     private final JButton[] incidentButtons;
-    private JButton lastClicked;
-    private boolean regionChanged;
+    private final EventBindings eventBindings;
     
     /**
      * Creates new form GUI
@@ -44,24 +54,53 @@ public class GUI extends javax.swing.JFrame {
      */
     public GUI() throws IOException {
         initComponents();
-        regionChanged = true;
         serviceLabels = new JLabel[]{jLabel1, jLabel2, jLabel3, jLabel4};
         statusLabels = new JLabel[]{jLabel5, jLabel6, jLabel7, jLabel8};
         incidentButtons = new JButton[]{jButton1, jButton2, jButton3, jButton4};
+        eventBindings = new EventBindings();
         
-        setupMenus();
-        setPollingRate(StaticData.DEFAULT_POLLING_RATE);
+        pollingPolicy = new AdaptivePollingPolicy();
         populateRegionComboBox(StaticData.getRegions());
         
         //Initialize region to first item in ComboBox (NA)
-        region = jComboBox1.getSelectedItem().toString().toLowerCase();
+        store = new AppStateStore(new AppState(jComboBox1.getSelectedItem().toString(), StaticData.DEFAULT_POLLING_RATE));
+        setupMenus();
         
         populateServicesLabels();
         
-        parser = new StatusParser(region);
-        handler = null;
+        parser = new StatusParser();
+        regionFetcher = new MultiRegionFetcher(parser);
         StaticData.setIpAddresses();
         
+        // Polls, probes and the countdown all run on one scheduler; the
+        // countdown is only a tick, so a slow poll never holds it up.
+        // Latency is probed on its own cadence so it never holds up a poll.
+        pollScheduler = ExecutionMode.current().newScheduler();
+        latencyMonitor = new LatencyMonitor();
+        handler = new StatusHandler(this);
+        
+        // Start from what the last run saw; nothing is fetched until the
+        // window is up and polling is started.
+        snapshotStore = new SnapshotStore(new File(StaticData.SNAPSHOT_FILE));
+        handler.restoreSnapshots(snapshotStore.load());
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // Keeps the time each region was last confirmed.
+                synchronized(snapshotStore) {
+                    snapshotStore.save(store.get().getSnapshots());
+                }
+            }
+        }, "Snapshot Saver"));
+        
+        latencyMonitor.setListener(new Runnable() {
+            @Override
+            public void run() {
+                handler.requestRender();
+            }
+        });
+        latencyMonitor.start(pollScheduler);
+        
         setTextWhenOff(); // default state
         clearPingLabels();
         
@@ -77,33 +116,46 @@ public class GUI extends javax.swing.JFrame {
                 // Keeps jToggleButton1's text from incorrectly changing to 
                 // "Checking..." when the region is changed and jToggleButton is disabled.
                 if(jToggleButton1.isSelected()) { 
-                    regionChanged = true;
-                    handler.interruptThreads();
+                    handler.restartPolling();
+                }
+                else {
+                    // Show the last known status of the new region.
+                    resetStatusLabels();
                 }
             }        
         });
         
+        setupRegionPrefetch();
+        
         // Listen for changes in check button state.
         jToggleButton1.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 if(jToggleButton1.isSelected()) {
-                    try {
-                        if(parser.networkCheck(getCurrentRegion())) {
-                            // Throws network errors (IOException from not 
-                            // being able to openStream()).
-                            setTextWhenOn();
-                            jTextArea1.setText(setNewTextAreaMessage());
+                    store.update(new AppStateStore.Updater() {
+                        @Override
+                        public AppState apply(AppState current) {
+                            return current.withPolling(true);
                         }
+                    });
+                    try {
+                        // Network errors are reported by the first poll.
+                        setTextWhenOn();
+                        jTextArea1.setText(setNewTextAreaMessage());
                     } catch (IOException ex) {
-                        // Catches network errors from not being able to openStream().
                         System.out.println(ex);
-                        networkErrorFound();
+                        // The store listener shows the error.
+                        reportNetworkError();
                     }
                 }
                 else {
-                    handler.interruptThreads();
-                    lastClicked = null;
+                    store.update(new AppStateStore.Updater() {
+                        @Override
+                        public AppState apply(AppState current) {
+                            return current.withPolling(false);
+                        }
+                    });
+                    handler.stopPolling();
                 }
             }        
         });  
@@ -182,12 +234,12 @@ public class GUI extends javax.swing.JFrame {
     }
 
     /**
-     * Gets the last JButton that was pressed.
+     * Gets the store holding the program's state.
      * 
-     * @return  the last JButton that was pressed
+     * @return  the AppStateStore object
      */
-    protected JButton getLastClicked() {
-        return lastClicked;
+    protected AppStateStore getStore() {
+        return store;
     }
  
     /**
@@ -199,6 +251,15 @@ public class GUI extends javax.swing.JFrame {
         return incidentButtons;
     }
     
+    /**
+     * Gets the listener bindings of the incident buttons.
+     * 
+     * @return the EventBindings object
+     */
+    protected EventBindings getEventBindings() {
+        return eventBindings;
+    }
+    
     /**
      * Gets the StatusParser object.
      * 
@@ -209,40 +270,53 @@ public class GUI extends javax.swing.JFrame {
     }
 
     /**
-     * Gets the NotificationTray object.
+     * Gets the StatusHandler object.
      * 
-     * @return the StatusParser object
+     * @return the StatusHandler object
      */
-    protected NotificationTray getNotifTray() {
-        return notif;
+    protected StatusHandler getStatusHandler() {
+        return handler;
     }
 
     /**
-     * Gets the state of regionChanged.
+     * Gets the NotificationTray object.
      * 
-     * @return true if regions have changed
+     * @return the StatusParser object
      */
-    protected boolean hasRegionChanged() {
-        return regionChanged;
+    protected NotificationTray getNotifTray() {
+        return notif;
     }
 
     //========================== GLOBAL SETTERS ============================
     /**
-     * Updates the last JButton that was pressed.
-     * 
-     * @param last the last JButton that was pressed
+     * Prefetches the region highlighted in jComboBox1's popup once it has
+     * stayed highlighted for a moment, so switching to it shows fresh data.
      */
-    protected void setLastClicked(JButton last) {
-        lastClicked = last;
-    }
-    
-    /**
-     * Update the state of regionChanged.
-     * 
-     * @param change the new state of regionChanged
-     */
-    protected void setRegionChanged(boolean change) {
-        regionChanged = change;
+    private void setupRegionPrefetch() {
+        Object popup = jComboBox1.getUI().getAccessibleChild(jComboBox1, 0);
+        if(!(popup instanceof ComboPopup)) {
+            return;
+        }
+        
+        final JList<?> list = ((ComboPopup)popup).getList();
+        final Timer hover = new Timer(StaticData.PREFETCH_DELAY_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if(jComboBox1.isPopupVisible() && list.getSelectedValue() != null) {
+                    handler.prefetch(list.getSelectedValue().toString());
+                }
+            }
+        });
+        hover.setRepeats(false);
+        
+        list.addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                if(jComboBox1.isPopupVisible()) {
+                    hover.restart();
+                }
+            }
+        });
     }
     
     /**
@@ -337,6 +411,16 @@ public class GUI extends javax.swing.JFrame {
             }
         });
         
+        // Show diagnostics.
+        JMenuItem diagnostics = new JMenuItem(StaticData.MENU_DIAGNOSTICS);
+        jMenu3.add(diagnostics);
+        diagnostics.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                displayDiagnosticsWindow();
+            }
+        });
+
         // About menu item listener
         jMenuItem4.addActionListener(new ActionListener() {
             @Override
@@ -369,6 +453,18 @@ public class GUI extends javax.swing.JFrame {
             StaticData.ABOUT_TITLE, JOptionPane.INFORMATION_MESSAGE);
     }
     
+    /**
+     * Raises a window showing runtime diagnostics.
+     */
+    protected void displayDiagnosticsWindow() {
+        JTextArea report = new JTextArea(Diagnostics.buildReport(this));
+        report.setEditable(false);
+
+        JOptionPane.showMessageDialog(new JFrame(), 
+            new JScrollPane(report),
+            StaticData.MENU_DIAGNOSTICS, JOptionPane.INFORMATION_MESSAGE);
+    }
+    
     /**
      * Populates and raises a window used to specify the polling rate for the
      * program.
@@ -380,7 +476,8 @@ public class GUI extends javax.swing.JFrame {
         String pollRate = "";
         int rate = 0;
 
-        String startingValue = getPollingRate() + "";
+        AppState state = store.get();
+        String startingValue = state.isAdaptive() ? StaticData.POLLING_ADAPTIVE : state.getPollingRate() + "";
 
         pollRate = (String) JOptionPane.showInputDialog(new JFrame(), 
             StaticData.POLLING_WINDOW_MSG,
@@ -395,6 +492,11 @@ public class GUI extends javax.swing.JFrame {
             pollRate = startingValue;
         }
 
+        if(pollRate.equals(StaticData.POLLING_ADAPTIVE)) {
+            setAdaptivePolling(true);
+            return;
+        }
+        
         rate = Integer.parseInt(pollRate);
 
         setPollingRate(rate);
@@ -418,7 +520,7 @@ public class GUI extends javax.swing.JFrame {
      * @return The current region.
      */
     public String getCurrentRegion() {
-        return region;
+        return store.get().getRegion();
     }
     
     /**
@@ -426,21 +528,36 @@ public class GUI extends javax.swing.JFrame {
      * 
      * @param newRegion The value currently selected in jComboBox1.
      */
-    protected void setCurrentRegion(String newRegion) {
-        region = newRegion.toLowerCase();
+    protected void setCurrentRegion(final String newRegion) {
+        store.update(new AppStateStore.Updater() {
+            @Override
+            public AppState apply(AppState current) {
+                return current.withRegion(newRegion);
+            }
+        });
     }
     
     /**
      * Sets the default status label values.
      */
     private void resetStatusLabels() {
-        for (JLabel label : statusLabels) {
-            label.setText(StaticData.POLLING_OFF_MSG);
-            decolorize(label);
+        // The last known status, e.g. from the previous run, is shown
+        // uncoloured until polling starts.
+        String region = getCurrentRegion();
+        RegionSnapshot snapshot = store.get().getSnapshot(region);
+        for (int i = 0; i < statusLabels.length; i++) {
+            Service service = snapshot == null ? null : snapshot.getStatus().getService(StaticData.getCurrentServiceName(i));
+            statusLabels[i].setText(service == null ? StaticData.POLLING_OFF_MSG : service.getStatus().getDisplayName());
+            decolorize(statusLabels[i]);
         }
         
         // Set polling rate info label to blank when polling is off
-        jLabel9.setText(StaticData.NOT_POLLING_MSG);
+        if(snapshot == null) {
+            jLabel9.setText(StaticData.NOT_POLLING_MSG);
+        }
+        else {
+            jLabel9.setText("Last known " + StaticData.displayRegion(region) + " status, " + snapshot.getAgeText() + " old.");
+        }
         jLabel9.setHorizontalAlignment(SwingConstants.CENTER);
     }
     
@@ -464,7 +581,8 @@ public class GUI extends javax.swing.JFrame {
     protected String setNewTextAreaMessage() {
         jTextArea1.setForeground(Color.black);
 
-        if(jToggleButton1.isSelected() && !handler.getAllIncidents().isEmpty()) {
+        AppState state = store.get();
+        if(state.isPolling() && !state.getIncidents().isEmpty()) {
             return StaticData.INCIDENTS_AVAILABLE;
         }       
         
@@ -472,30 +590,122 @@ public class GUI extends javax.swing.JFrame {
     }
     
     /**
-     * Sets the rate at which the program queries the API.
+     * Sets the rate at which the program queries the API.  This turns
+     * adaptive polling off.
      * 
      * @param rate The rate of checking servers (in seconds)
      */
-    protected final void setPollingRate(int rate) {
-        pollingRate = rate;
+    protected final void setPollingRate(final int rate) {
+        store.update(new AppStateStore.Updater() {
+            @Override
+            public AppState apply(AppState current) {
+                return current.withPollingRate(rate);
+            }
+        });
+    }
+    
+    /**
+     * Turns adaptive polling on or off.  When on, the polling rate is picked
+     * by the AdaptivePollingPolicy based on the state of the current region.
+     * 
+     * @param adaptive True to poll adaptively, false to use the fixed rate.
+     */
+    protected void setAdaptivePolling(final boolean adaptive) {
+        store.update(new AppStateStore.Updater() {
+            @Override
+            public AppState apply(AppState current) {
+                return current.withAdaptive(adaptive);
+            }
+        });
+    }
+    
+    /**
+     * Checks if adaptive polling is selected.
+     * 
+     * @return True if polling adaptively, false otherwise.
+     */
+    public boolean isAdaptivePolling() {
+        return store.get().isAdaptive();
     }
     
     /**
-     * Gets the rate at which the program queries the API.
+     * Gets the rate at which the program queries the API.  When polling
+     * adaptively this is the current interval for the current region.
      * 
      * @return The rate at which the program checks the servers.
      */
     public int getPollingRate() {
-        return pollingRate;
+        return getPollingRate(store.get().getRegion());
+    }
+    
+    /**
+     * Gets the rate at which a region is polled.  When polling adaptively
+     * every region has an interval of its own.
+     * 
+     * @param region The region.
+     * @return The number of seconds between two polls of the region.
+     */
+    public int getPollingRate(String region) {
+        AppState state = store.get();
+        if(state.isAdaptive()) {
+            return pollingPolicy.getInterval(region);
+        }
+        return state.getPollingRate();
+    }
+    
+    /**
+     * Gets the policy used when polling adaptively.
+     * 
+     * @return the AdaptivePollingPolicy object
+     */
+    protected AdaptivePollingPolicy getPollingPolicy() {
+        return pollingPolicy;
     }
     
+    /**
+     * Gets the file the last known snapshots are kept in between runs.
+     * 
+     * @return the SnapshotStore object
+     */
+    protected SnapshotStore getSnapshotStore() {
+        return snapshotStore;
+    }
+    
+    /**
+     * Gets the fetcher that fetches every other region at once.
+     * 
+     * @return the MultiRegionFetcher object
+     */
+    protected MultiRegionFetcher getRegionFetcher() {
+        return regionFetcher;
+    }
+    
+    /**
+     * Gets the scheduler that runs the poll, probe and countdown tasks.
+     * 
+     * @return the TaskScheduler object
+     */
+    protected TaskScheduler getPollScheduler() {
+        return pollScheduler;
+    }
+    
+    /**
+     * Gets the monitor that probes the latency of every region.
+     * 
+     * @return the LatencyMonitor object
+     */
+    protected LatencyMonitor getLatencyMonitor() {
+        return latencyMonitor;
+    }
+
     /**
      * Set server status labels when not checking the server status.
      * 
      * @throws java.io.IOException
      */
     protected final void setTextWhenOff() throws IOException {
-        if(parser.networkCheck(getCurrentRegion())) {
+        // Uses the outcome of the last poll rather than making a request.
+        if(parser.isNetworkUp(getCurrentRegion())) {
             jTextArea1.setText(setNewTextAreaMessage());
         }
         else {
@@ -519,7 +729,6 @@ public class GUI extends javax.swing.JFrame {
      * @throws java.io.IOException
      */
     private void setTextWhenOn() throws IOException {
-        handler = new StatusHandler(this);
         handler.setTextWhenOn();
     }
     
@@ -528,54 +737,48 @@ public class GUI extends javax.swing.JFrame {
      * region.
      */
     protected void setFormIcon() {
-        Image img;
-        
-        if(!jToggleButton1.isSelected()) {
+        setFormIcon(getFormIconName(store.get()));
+    }
+    
+    /**
+     * Gets the name of the form icon for a state.
+     * 
+     * @param state The state to show.
+     * @return The icon resource name.
+     */
+    protected static String getFormIconName(AppState state) {
+        if(!state.isPolling()) {
             // Grey Icon - IDLE
-            img = resources.ResourceLoader.getImage("iconIDLE.png");
+            return "iconIDLE.png";
         }
-        else if(checkAllOnline()) {
-            if(checkForAnIncident()) {
+        else if(state.isAllOnline()) {
+            if(!state.getIncidents().isEmpty()) {
                 // Yellow Icon - INCDENTS EXIST
-                img = resources.ResourceLoader.getImage("iconINCIDENT.png");
+                return "iconINCIDENT.png";
             }
             else {
                 // Green Icon - ALL SERVICES ONLINE, NO INCIDENTS
-                img = resources.ResourceLoader.getImage("iconONLINE.png");
+                return "iconONLINE.png";
             }
         }
         else {
             // Red Icon - AT LEAST ONE SERVICE OFFLINE
-            img = resources.ResourceLoader.getImage("iconOFFLINE.png");
-        }
-        
-        this.setIconImage(img);
-        if(notif != null) {
-            notif.setTrayIcon(img);
+            return "iconOFFLINE.png";
         }
     }
     
     /**
-     * Checks to see if all services are online.
+     * Sets the GUI form and tray icon.
      * 
-     * @return True if all services are online, false otherwise. 
+     * @param name The icon resource name.
      */
-    private boolean checkAllOnline() {
-        for(JLabel label : statusLabels) {
-            if(!label.getText().equals(StaticData.SERVICE_ONLINE) && !label.getText().equals(StaticData.POLLING_OFF_MSG)) {
-                return false;
-            }
+    protected void setFormIcon(String name) {
+        Image img = resources.ResourceLoader.getImage(name);
+        
+        this.setIconImage(img);
+        if(notif != null) {
+            notif.setTrayIcon(img);
         }
-        return true;
-    }
-
-    /**
-     * Checks to see if there are any incidents for any service.
-     * 
-     * @return True if there is at least one incident, false otherwise. 
-     */
-    private boolean checkForAnIncident() {
-        return !handler.getAllIncidents().isEmpty();
     }
     
     /**
@@ -603,30 +806,25 @@ public class GUI extends javax.swing.JFrame {
     }
     
     /**
-    * Change the color of service status labels based on current state
-    * of server.
-    * 
-    * @param label The label to colorize.
-    */
-   protected void colorize(JLabel label) {
-       switch (label.getText()) {
-           case StaticData.SERVICE_ONLINE:
-               label.setForeground(StaticData.GREEN);
-               break;
-           case StaticData.SERVICE_OFFLINE:
-               label.setForeground(StaticData.RED);
-               break;
-           case StaticData.SERVICE_ALERT:
-               label.setForeground(StaticData.YELLOW);
-               break;
-           case StaticData.SERVICE_DEPLOYING:
-               label.setForeground(Color.blue);
-               break;
-           default:
-               label.setForeground(Color.magenta);
-               break;
-       }
-   }
+     * Gets the colour a service status is shown in.
+     * 
+     * @param status The status text.
+     * @return The colour of the status label.
+     */
+    protected static Color getStatusColor(String status) {
+        switch (status) {
+            case StaticData.SERVICE_ONLINE:
+                return StaticData.GREEN;
+            case StaticData.SERVICE_OFFLINE:
+                return StaticData.RED;
+            case StaticData.SERVICE_ALERT:
+                return StaticData.YELLOW;
+            case StaticData.SERVICE_DEPLOYING:
+                return Color.blue;
+            default:
+                return Color.magenta;
+        }
+    }
     
     /**
      * Reset the server status labels to black when the program is not checking
@@ -635,13 +833,27 @@ public class GUI extends javax.swing.JFrame {
      * @param label The label to decolorize. 
      */
     private void decolorize(JLabel label) {
-        if(label.getText().equals(StaticData.POLLING_OFF_MSG)){
-            label.setForeground(Color.black);
-        }
+        // Also applies to a cached status, which isn't confirmed until the
+        // next poll.
+        label.setForeground(Color.black);
     }
     
     /**
-     * Displays a message in jTextBox1 if there is a network error.
+     * Stops polling because of a network error.  The store's listener then
+     * calls networkErrorFound, so the message is shown once.
+     */
+    private void reportNetworkError() {
+        store.update(new AppStateStore.Updater() {
+            @Override
+            public AppState apply(AppState current) {
+                return current.withNetworkError();
+            }
+        });
+    }
+    
+    /**
+     * Displays a message in jTextBox1 if there is a network error.  Only
+     * draws; the state is changed by whoever found the error.
      */
     protected void networkErrorFound() {
         jToggleButton1.setSelected(false);
@@ -674,28 +886,32 @@ public class GUI extends javax.swing.JFrame {
     }
     
     /**
-     * Sets the ping label value for the current region.
+     * Gets the colour the ping value of a region is shown in.
+     * 
+     * @param r The region.
+     * @return The colour of the ping label.
      */
-    protected void setPingValue() {
-        String ping = parser.determinePing(StaticData.getRegionIp(getCurrentRegion()));
-        double pingValue = 999.99;
-        try {
-            pingValue = Double.parseDouble(ping.substring(0, ping.indexOf("ms")).trim());
+    protected Color getPingColor(String r) {
+        // Colour by the 90th percentile so one lucky or unlucky sample
+        // doesn't flip it.
+        if(latencyMonitor.isUnreachable(r)) {
+            // Unknown, not necessarily slow.
+            return Color.black;
         }
-        catch(StringIndexOutOfBoundsException ex){
+        LatencyStats ping = latencyMonitor.getStats(r);
+        double pingValue = 999.99;
+        if(ping != null && ping.hasReplies()) {
+            pingValue = ping.getP90();
         }
         
-        jLabel11.setText(getCurrentRegion().toUpperCase() + " ping is ");
-        jLabel12.setText(ping);
-        
         if(pingValue > 0 && pingValue < 50) {
-            jLabel12.setForeground(StaticData.GREEN);
+            return StaticData.GREEN;
         }
         else if(pingValue > 50 && pingValue < 150) {
-            jLabel12.setForeground(StaticData.YELLOW);
+            return StaticData.YELLOW;
         }
         else {
-            jLabel12.setForeground(StaticData.RED);
+            return StaticData.RED;
         }
     }
 
@@ -0,0 +1,67 @@
+package ritopls;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An incident reported for a service, made up of one or more updates.
+ *
+ * @author Chris Meyers
+ */
+public final class Incident {
+    private final String id;
+    private final boolean active;
+    private final String createdAt;
+    private final List<IncidentUpdate> updates;
+
+    /**
+     * Incident constructor.
+     *
+     * @param id The incident id.
+     * @param active True if the incident is still active.
+     * @param createdAt The raw created_at timestamp.
+     * @param updates The updates in the order the API sent them.
+     */
+    public Incident(String id, boolean active, String createdAt, List<IncidentUpdate> updates) {
+        this.id = id;
+        this.active = active;
+        this.createdAt = createdAt;
+        this.updates = Collections.unmodifiableList(updates);
+    }
+
+    /**
+     * Gets the incident id.
+     *
+     * @return The incident id.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Checks if the incident is still active.
+     *
+     * @return True if the incident is active, false otherwise.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Gets the time the incident was created.
+     *
+     * @return The raw created_at timestamp.
+     */
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Gets the updates of this incident.
+     *
+     * @return The updates in the order the API sent them.
+     */
+    public List<IncidentUpdate> getUpdates() {
+        return updates;
+    }
+}
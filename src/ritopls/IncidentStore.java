@@ -0,0 +1,182 @@
+package ritopls;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The incident updates of one region, keyed by update id.
+ *
+ * Each poll's updates are checked against the store with a single map
+ * lookup, so an incident storm with hundreds of updates costs the same per
+ * update as a quiet poll.  The store hands out per-service views, newest
+ * first, of the updates in the latest snapshot, and only rebuilds them
+ * when an update appears or goes away.  Updates no longer reported are
+ * remembered for a while so they aren't taken for new ones if they come
+ * back; the oldest are evicted once the store holds more than maxSize
+ * updates or they haven't been seen for maxAgeMillis.
+ *
+ * @author Chris Meyers
+ */
+public class IncidentStore {
+    private static final Comparator<IncidentUpdate> NEWEST_FIRST = new Comparator<IncidentUpdate>() {
+        @Override
+        public int compare(IncidentUpdate a, IncidentUpdate b) {
+            // ISO-8601 timestamps sort by time as plain strings.
+            return b.getUpdatedAt().compareTo(a.getUpdatedAt());
+        }
+    };
+
+    private final int maxSize;
+    private final long maxAgeMillis;
+    private final LinkedHashMap<String, Entry> updates = new LinkedHashMap<>();
+    private Map<String, List<IncidentUpdate>> views = Collections.emptyMap();
+    private long generation;
+    private int current;
+    private long added;
+    private long evicted;
+
+    /**
+     * IncidentStore constructor.
+     *
+     * @param maxSize The most updates held, current or not.
+     * @param maxAgeMillis How long an update no longer reported is kept.
+     */
+    public IncidentStore(int maxSize, long maxAgeMillis) {
+        this.maxSize = maxSize;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Adds the updates of a new snapshot.
+     *
+     * @param status The latest status of the region.
+     * @return The current updates keyed by service name, newest first.  The
+     *         same map is returned as long as the updates don't change.
+     */
+    public synchronized Map<String, List<IncidentUpdate>> update(Shard status) {
+        long now = System.currentTimeMillis();
+        long gen = ++generation;
+        boolean changed = false;
+        int seen = 0;
+
+        for(Service service : status.getServices()) {
+            for(IncidentUpdate update : service.getUpdates()) {
+                Entry entry = updates.get(update.getId());
+                if(entry == null) {
+                    entry = new Entry(service.getName(), update);
+                    updates.put(update.getId(), entry);
+                    added++;
+                    changed = true;
+                }
+                else if(entry.generation == gen) {
+                    // Already counted in this snapshot.
+                    continue;
+                }
+                else if(entry.generation != gen - 1) {
+                    // Reported again after dropping out.
+                    changed = true;
+                }
+                entry.generation = gen;
+                entry.lastSeen = now;
+                seen++;
+            }
+        }
+
+        // Fewer updates than last time means some went away.
+        changed |= seen != current;
+        current = seen;
+        evict(now, gen);
+
+        if(changed) {
+            views = buildViews(gen);
+        }
+        return views;
+    }
+
+    /**
+     * Drops updates not in the current snapshot that are too old, then the
+     * oldest ones while the store is over its size.
+     */
+    private void evict(long now, long gen) {
+        Iterator<Entry> it = updates.values().iterator();
+        while(it.hasNext()) {
+            Entry entry = it.next();
+            if(entry.generation != gen && now - entry.lastSeen > maxAgeMillis) {
+                it.remove();
+                evicted++;
+            }
+        }
+
+        it = updates.values().iterator();
+        while(updates.size() > Math.max(maxSize, current) && it.hasNext()) {
+            if(it.next().generation != gen) {
+                it.remove();
+                evicted++;
+            }
+        }
+    }
+
+    /**
+     * Builds the per-service views of the current updates.
+     */
+    private Map<String, List<IncidentUpdate>> buildViews(long gen) {
+        HashMap<String, List<IncidentUpdate>> built = new HashMap<>();
+        for(Entry entry : updates.values()) {
+            if(entry.generation != gen) {
+                continue;
+            }
+            List<IncidentUpdate> list = built.get(entry.service);
+            if(list == null) {
+                list = new ArrayList<>();
+                built.put(entry.service, list);
+            }
+            list.add(entry.update);
+        }
+
+        for(Map.Entry<String, List<IncidentUpdate>> e : built.entrySet()) {
+            Collections.sort(e.getValue(), NEWEST_FIRST);
+            e.setValue(Collections.unmodifiableList(e.getValue()));
+        }
+        return Collections.unmodifiableMap(built);
+    }
+
+    /**
+     * Checks if an update has been seen.
+     *
+     * @param id The update id.
+     * @return True if the store holds the update.
+     */
+    public synchronized boolean contains(String id) {
+        return updates.containsKey(id);
+    }
+
+    /**
+     * Builds a one-line report of the store for the diagnostics window.
+     *
+     * @return The report.
+     */
+    public synchronized String getReport() {
+        return current + " current, " + updates.size() + " held, " + added + " added, " + evicted + " evicted";
+    }
+
+    /**
+     * An update and when it was last reported.
+     */
+    private static class Entry {
+        private final String service;
+        private final IncidentUpdate update;
+        private long generation;
+        private long lastSeen;
+
+        Entry(String service, IncidentUpdate update) {
+            this.service = service;
+            this.update = update;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ritopls;
+
+/**
+ * A single update posted to an incident.
+ *
+ * @author Chris Meyers
+ */
+public final class IncidentUpdate {
+    private final String id;
+    private final Severity severity;
+    private final String updatedAt;
+    private final String content;
+
+    /**
+     * IncidentUpdate constructor.
+     *
+     * @param id The update id.
+     * @param severity The severity.
+     * @param updatedAt The raw updated_at timestamp.
+     * @param content The update message.
+     */
+    public IncidentUpdate(String id, Severity severity, String updatedAt, String content) {
+        this.id = id;
+        this.severity = severity;
+        this.updatedAt = updatedAt;
+        this.content = content;
+    }
+
+    /**
+     * Gets the update id.
+     *
+     * @return The update id.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the severity of the update.
+     *
+     * @return The severity.
+     */
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    /**
+     * Gets the time the update was last changed.
+     *
+     * @return The raw updated_at timestamp.
+     */
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Gets the update message.
+     *
+     * @return The update message.
+     */
+    public String getContent() {
+        return content;
+    }
+}
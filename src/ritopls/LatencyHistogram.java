@@ -0,0 +1,122 @@
+package ritopls;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size histogram of latencies in microseconds, in the style of
+ * HdrHistogram.
+ *
+ * Values below 64 get a bucket each; above that every power of two is
+ * split into 32 linear buckets, so a recorded value is off by at most about
+ * 3%.  Everything is kept in a single long array, so recording never
+ * allocates or boxes.  Values above the maximum are counted in the last
+ * bucket.  Not thread-safe.
+ *
+ * @author Chris Meyers
+ */
+public class LatencyHistogram {
+    public static final long MAX_MICROS = 60L * 1000 * 1000;
+
+    private static final int LINEAR_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = indexOf(MAX_MICROS) + 1;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long total;
+    private long max;
+
+    /**
+     * Records a latency.
+     *
+     * @param micros The latency in microseconds.
+     */
+    public void record(long micros) {
+        long value = Math.max(0, Math.min(MAX_MICROS, micros));
+        counts[indexOf(value)]++;
+        total++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds every value recorded by another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes every recorded value.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Gets the highest recorded value.
+     *
+     * @return The highest value, 0 if none were recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the value below which the given share of recorded values fall.
+     *
+     * @param percentile The share, from 0 to 1.
+     * @return The highest value of the bucket the percentile falls in
+     *         (capped at the largest recorded value), or 0 if empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if(total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long)Math.ceil(percentile * total));
+        long seen = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if(seen >= target) {
+                return Math.min(max, highestValueOf(i));
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if(value < LINEAR_BUCKETS) {
+            return (int)value;
+        }
+        // Keep the top SUB_BUCKET_BITS + 1 bits of the value.
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int sub = (int)(value >>> shift) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long highestValueOf(int index) {
+        if(index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
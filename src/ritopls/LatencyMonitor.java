@@ -0,0 +1,290 @@
+package ritopls;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a live latency matrix of every region.
+ *
+ * Every probe cycle probes all regions at once through one Selector, as a
+ * fixed rate task of the TaskScheduler, so a slow or lost probe never
+ * holds up a status poll.  A region that answers none of the probes of a
+ * cycle is shown as unreachable rather than as 100% loss.
+ * Regions with a known game server IP are probed there; the others are
+ * probed on their API host.  Every sample also goes into the region's
+ * LatencyRecorder, which gives percentiles, jitter and loss over a sliding
+ * window.  After every probe cycle the listener, if any, is told that new
+ * results are available.
+ *
+ * @author Chris Meyers
+ */
+public class LatencyMonitor {
+    public static final int API_PORT = 443;
+
+    private final LatencyProber prober;
+    private final int samples;
+    private final long intervalMillis;
+    private final ConcurrentHashMap<String, PingResult> results = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+    private final HashMap<String, InetSocketAddress> targets = new HashMap<>();
+    private volatile Runnable listener;
+    private Selector selector;
+    private TaskScheduler.Task task;
+
+    /**
+     * LatencyMonitor constructor.
+     *
+     * @param prober The prober used for each round.
+     * @param samples The number of probes per region per cycle.
+     * @param intervalMillis The time between the start of two cycles.
+     */
+    public LatencyMonitor(LatencyProber prober, int samples, long intervalMillis) {
+        this.prober = prober;
+        this.samples = Math.max(1, samples);
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * LatencyMonitor constructor using the configured sample count and
+     * interval.
+     */
+    public LatencyMonitor() {
+        this(new LatencyProber(), StaticData.PING_SAMPLES, StaticData.PING_INTERVAL_SECONDS * 1000L);
+    }
+
+    /**
+     * Sets the code to run after every probe cycle.  It runs on a scheduler
+     * thread.
+     *
+     * @param l The listener, or null for none.
+     */
+    public void setListener(Runnable l) {
+        listener = l;
+    }
+
+    /**
+     * Starts probing on the given scheduler.  Does nothing if already
+     * started.
+     *
+     * @param scheduler The scheduler to run the probe cycles on.
+     * @throws IOException if the selector can't be opened.
+     */
+    public synchronized void start(TaskScheduler scheduler) throws IOException {
+        if(task != null) {
+            return;
+        }
+        if(selector == null) {
+            selector = Selector.open();
+        }
+
+        task = scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    probeCycle(selector);
+
+                    Runnable l = listener;
+                    if(l != null) {
+                        l.run();
+                    }
+                }
+                catch(RuntimeException e) {
+                    // A fixed rate task that throws is never run again.
+                    System.out.println(e);
+                }
+            }
+        }, intervalMillis);
+    }
+
+    /**
+     * Stops probing.  The last results are kept.
+     */
+    public synchronized void stop() {
+        if(task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Gets the result of the last cycle for a region.
+     *
+     * @param region The region.
+     * @return The last result, or null if the region hasn't been probed yet.
+     */
+    public PingResult getResult(String region) {
+        return results.get(StaticData.displayRegion(region));
+    }
+
+    /**
+     * Gets the statistics of a region over the sliding window.
+     *
+     * @param region The region.
+     * @return The statistics, or null if the region hasn't been probed yet.
+     */
+    public LatencyStats getStats(String region) {
+        LatencyRecorder recorder = recorders.get(StaticData.displayRegion(region));
+        return recorder == null ? null : recorder.getStats();
+    }
+
+    /**
+     * Checks if the last probe cycle got no answer at all from a region.
+     *
+     * @param region The region.
+     * @return True if every probe of the last cycle went unanswered.
+     */
+    public boolean isUnreachable(String region) {
+        PingResult result = getResult(region);
+        return result != null && !result.hasReplies();
+    }
+
+    /**
+     * Gets a short display value for a region's latency.
+     *
+     * @param region The region.
+     * @return The median and 99th percentile round trip, or a message if
+     *         there are none.
+     */
+    public String getDisplayValue(String region) {
+        if(isUnreachable(region)) {
+            return "Unreachable";
+        }
+        LatencyStats stats = getStats(region);
+        if(stats == null || !stats.hasReplies()) {
+            return "Not Available";
+        }
+        return String.format("%.0f ms (p99 %.0f)", stats.getP50(), stats.getP99());
+    }
+
+    /**
+     * Gets a one line summary of a region's latency for the tray tooltip.
+     *
+     * @param region The region.
+     * @return The percentiles, jitter and loss of the region.
+     */
+    public String getSummary(String region) {
+        LatencyStats stats = getStats(region);
+        if(stats == null || !stats.hasReplies()) {
+            return StaticData.displayRegion(region) + " ping is " + getDisplayValue(region);
+        }
+        return String.format("%s ping p50/p90/p99: %.0f/%.0f/%.0f ms, jitter %.1f ms, loss %.0f%%",
+                             StaticData.displayRegion(region), stats.getP50(), stats.getP90(), stats.getP99(),
+                             stats.getJitter(), stats.getLoss() * 100);
+    }
+
+    /**
+     * Builds the latency matrix of every region.
+     *
+     * @return A multi-line report.
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        for(String region : StaticData.getRegions()) {
+            PingResult result = getResult(region);
+            LatencyStats stats = getStats(region);
+            report.append("    ").append(region).append(": ")
+                  .append(result == null ? "not probed yet" : result.toString()).append('\n');
+            if(stats != null) {
+                report.append("        window: ").append(stats).append('\n');
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Probes every region "samples" times and publishes the results.
+     *
+     * @param selector The selector to probe on.
+     */
+    private void probeCycle(Selector selector) {
+        resolveTargets();
+
+        HashMap<String, double[]> rtts = new HashMap<>();
+        for(int i = 0; i < samples && !Thread.currentThread().isInterrupted(); i++) {
+            for(Map.Entry<String, Double> rtt : prober.probeRound(selector, targets).entrySet()) {
+                double[] round = rtts.get(rtt.getKey());
+                if(round == null) {
+                    round = new double[samples];
+                    rtts.put(rtt.getKey(), round);
+                }
+                round[i] = rtt.getValue();
+            }
+        }
+        if(Thread.currentThread().isInterrupted()) {
+            return;
+        }
+
+        for(Map.Entry<String, double[]> entry : rtts.entrySet()) {
+            PingResult result = summarize(targets.get(entry.getKey()), entry.getValue());
+            results.put(entry.getKey(), result);
+
+            // A host that answered nothing may just not listen on the
+            // port, so only the misses of a host that answered count as
+            // loss.
+            if(result.hasReplies()) {
+                for(double rtt : entry.getValue()) {
+                    getRecorder(entry.getKey()).record(rtt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Works out the address of every region, resolving host names again
+     * for any that failed to resolve last time.
+     */
+    private void resolveTargets() {
+        for(String region : StaticData.getRegions()) {
+            InetSocketAddress target = targets.get(region);
+            if(target != null && !target.isUnresolved()) {
+                continue;
+            }
+
+            String ip = StaticData.getRegionIp(region);
+            if(ip.isEmpty()) {
+                targets.put(region, new InetSocketAddress(StaticData.getRegionKey(region) + ".api.riotgames.com", API_PORT));
+            }
+            else {
+                targets.put(region, new InetSocketAddress(ip, StaticData.PING_PORT));
+            }
+        }
+    }
+
+    private LatencyRecorder getRecorder(String region) {
+        LatencyRecorder recorder = recorders.get(region);
+        if(recorder == null) {
+            recorder = new LatencyRecorder();
+            LatencyRecorder existing = recorders.putIfAbsent(region, recorder);
+            if(existing != null) {
+                recorder = existing;
+            }
+        }
+        return recorder;
+    }
+
+    private static PingResult summarize(InetSocketAddress target, double[] rtts) {
+        int received = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        double total = 0;
+
+        for(double rtt : rtts) {
+            if(rtt >= 0) {
+                received++;
+                min = Math.min(min, rtt);
+                max = Math.max(max, rtt);
+                total += rtt;
+            }
+        }
+
+        String host = target.getHostString() + ":" + target.getPort();
+        if(received == 0) {
+            return new PingResult(host, rtts.length, 0, 0, 0, 0);
+        }
+        return new PingResult(host, rtts.length, received, min, total / received, max);
+    }
+}
@@ -0,0 +1,158 @@
+package ritopls;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Measures the round trip to hosts by timing non-blocking TCP connects.
+ *
+ * Each probe opens a SocketChannel and waits on a Selector for the connect
+ * to finish.  Only an accepted connection counts as an answer.  A probe
+ * that times out, is refused or fails to route says nothing for sure: the
+ * host may be down, or just not listening on the port or behind a firewall
+ * that drops it.  LatencyMonitor decides what such a probe means.  Nothing
+ * is sent over the connection and no external process is started.  Any
+ * number of hosts can be probed at once on the same Selector.
+ *
+ * @author Chris Meyers
+ */
+public class LatencyProber {
+    private final int port;
+    private final int timeoutMillis;
+
+    /**
+     * LatencyProber constructor.
+     *
+     * @param port The TCP port to connect to when probing a host by name.
+     * @param timeoutMillis How long to wait for each probe before giving up on it.
+     */
+    public LatencyProber(int port, int timeoutMillis) {
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * LatencyProber constructor using the configured port and timeout.
+     */
+    public LatencyProber() {
+        this(StaticData.PING_PORT, StaticData.PING_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Sends one probe to every target at the same time and waits until
+     * they have all answered or timed out.
+     *
+     * @param selector The selector to wait on; it is left empty afterwards.
+     * @param targets The addresses to probe, by name.
+     * @return The round trip in millis of every target by name, or -1 for
+     *         the ones that didn't answer.
+     */
+    public Map<String, Double> probeRound(Selector selector, Map<String, InetSocketAddress> targets) {
+        HashMap<String, Double> results = new HashMap<>();
+        int pending = 0;
+
+        for(Map.Entry<String, InetSocketAddress> target : targets.entrySet()) {
+            results.put(target.getKey(), -1.0);
+            if(target.getValue().isUnresolved()) {
+                continue;
+            }
+
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                long start = System.nanoTime();
+                if(channel.connect(target.getValue())) {
+                    results.put(target.getKey(), elapsedMillis(start));
+                    channel.close();
+                }
+                else {
+                    channel.register(selector, SelectionKey.OP_CONNECT, new Probe(target.getKey(), start));
+                    pending++;
+                }
+            }
+            catch(IOException e) {
+                close(channel);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            while(pending > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if(remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                selector.select(remaining);
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while(selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+
+                    Probe probe = (Probe)key.attachment();
+                    SocketChannel channel = (SocketChannel)key.channel();
+                    try {
+                        channel.finishConnect();
+                        results.put(probe.name, elapsedMillis(probe.start));
+                    }
+                    catch(IOException e) {
+                        // Refused or unroutable: no answer.
+                    }
+                    key.cancel();
+                    close(channel);
+                    pending--;
+                }
+            }
+        }
+        catch(IOException e) {
+            System.out.println(e);
+        }
+        finally {
+            // Whatever is left timed out.
+            for(SelectionKey key : selector.keys()) {
+                key.cancel();
+                close(key.channel());
+            }
+            try {
+                selector.selectNow();
+            }
+            catch(IOException e) {}
+        }
+
+        return results;
+    }
+
+    private static double elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1000000.0;
+    }
+
+    private static void close(Channel channel) {
+        if(channel != null) {
+            try {
+                channel.close();
+            }
+            catch(IOException e) {}
+        }
+    }
+
+    /**
+     * A connect in flight.
+     */
+    private static class Probe {
+        private final String name;
+        private final long start;
+
+        Probe(String name, long start) {
+            this.name = name;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ritopls;
+
+/**
+ * Keeps the latency samples of one region over a sliding window.
+ *
+ * The window is split into slots, each with its own histogram, loss count
+ * and jitter sum.  When a slot's time is up the oldest slot is cleared and
+ * reused, so the statistics always cover the last "window" of samples
+ * without keeping the samples themselves.  Jitter is the mean difference
+ * between consecutive round trips, as in RFC 3550.
+ *
+ * @author Chris Meyers
+ */
+public class LatencyRecorder {
+    private final LatencyHistogram[] histograms;
+    private final long[] lost;
+    private final long[] jitterSumMicros;
+    private final long[] jitterCount;
+    private final long slotMillis;
+    private final LatencyHistogram merged = new LatencyHistogram();
+    private int current;
+    private long slotStart;
+    private long lastMicros = -1;
+
+    /**
+     * LatencyRecorder constructor.
+     *
+     * @param windowMillis The length of the sliding window.
+     * @param slots The number of slots the window is split into.
+     */
+    public LatencyRecorder(long windowMillis, int slots) {
+        histograms = new LatencyHistogram[slots];
+        for(int i = 0; i < slots; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        lost = new long[slots];
+        jitterSumMicros = new long[slots];
+        jitterCount = new long[slots];
+        slotMillis = Math.max(1, windowMillis / slots);
+        slotStart = System.currentTimeMillis();
+    }
+
+    /**
+     * LatencyRecorder constructor using the configured window.
+     */
+    public LatencyRecorder() {
+        this(StaticData.LATENCY_WINDOW_SECONDS * 1000L, StaticData.LATENCY_WINDOW_SLOTS);
+    }
+
+    /**
+     * Records a probe result.
+     *
+     * @param millis The round trip in millis, or a negative value if the probe was lost.
+     */
+    public synchronized void record(double millis) {
+        rotate(System.currentTimeMillis());
+
+        if(millis < 0) {
+            lost[current]++;
+            return;
+        }
+
+        long micros = Math.round(millis * 1000);
+        histograms[current].record(micros);
+        if(lastMicros >= 0) {
+            jitterSumMicros[current] += Math.abs(micros - lastMicros);
+            jitterCount[current]++;
+        }
+        lastMicros = micros;
+    }
+
+    /**
+     * Gets the statistics of the current window.
+     *
+     * @return The statistics, or null if nothing was recorded in the window.
+     */
+    public synchronized LatencyStats getStats() {
+        rotate(System.currentTimeMillis());
+
+        merged.clear();
+        long lostTotal = 0;
+        long jitterSum = 0;
+        long jitterTotal = 0;
+        for(int i = 0; i < histograms.length; i++) {
+            merged.add(histograms[i]);
+            lostTotal += lost[i];
+            jitterSum += jitterSumMicros[i];
+            jitterTotal += jitterCount[i];
+        }
+
+        long sent = merged.getCount() + lostTotal;
+        if(sent == 0) {
+            return null;
+        }
+
+        return new LatencyStats(merged.getValueAtPercentile(0.50) / 1000.0,
+                                merged.getValueAtPercentile(0.90) / 1000.0,
+                                merged.getValueAtPercentile(0.99) / 1000.0,
+                                merged.getMax() / 1000.0,
+                                jitterTotal == 0 ? 0 : jitterSum / (double)jitterTotal / 1000.0,
+                                lostTotal / (double)sent,
+                                sent);
+    }
+
+    /**
+     * Moves on to a fresh slot for every slot length that passed since the
+     * current slot started.
+     *
+     * @param now The current time.
+     */
+    private void rotate(long now) {
+        long passed = (now - slotStart) / slotMillis;
+        if(passed <= 0) {
+            return;
+        }
+
+        for(long i = 0; i < Math.min(passed, histograms.length); i++) {
+            current = (current + 1) % histograms.length;
+            histograms[current].clear();
+            lost[current] = 0;
+            jitterSumMicros[current] = 0;
+            jitterCount[current] = 0;
+        }
+        slotStart += passed * slotMillis;
+    }
+}
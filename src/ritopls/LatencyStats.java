@@ -0,0 +1,118 @@
+package ritopls;
+
+/**
+ * Latency statistics of one region over a sliding window.
+ *
+ * @author Chris Meyers
+ */
+public class LatencyStats {
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double max;
+    private final double jitter;
+    private final double loss;
+    private final long samples;
+
+    /**
+     * LatencyStats constructor.  Every time is in millis.
+     *
+     * @param p50 The median round trip.
+     * @param p90 The 90th percentile round trip.
+     * @param p99 The 99th percentile round trip.
+     * @param max The slowest round trip.
+     * @param jitter The mean difference between consecutive round trips.
+     * @param loss The share of probes that went unanswered, from 0 to 1.
+     * @param samples The number of probes sent in the window.
+     */
+    LatencyStats(double p50, double p90, double p99, double max, double jitter, double loss, long samples) {
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+        this.jitter = jitter;
+        this.loss = loss;
+        this.samples = samples;
+    }
+
+    /**
+     * Gets the median round trip.
+     *
+     * @return The round trip in millis.
+     */
+    public double getP50() {
+        return p50;
+    }
+
+    /**
+     * Gets the 90th percentile round trip.
+     *
+     * @return The round trip in millis.
+     */
+    public double getP90() {
+        return p90;
+    }
+
+    /**
+     * Gets the 99th percentile round trip.
+     *
+     * @return The round trip in millis.
+     */
+    public double getP99() {
+        return p99;
+    }
+
+    /**
+     * Gets the slowest round trip.
+     *
+     * @return The round trip in millis.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the mean difference between consecutive round trips.
+     *
+     * @return The jitter in millis.
+     */
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Gets the share of probes that went unanswered.
+     *
+     * @return The loss, from 0 to 1.
+     */
+    public double getLoss() {
+        return loss;
+    }
+
+    /**
+     * Gets the number of probes sent in the window.
+     *
+     * @return The number of probes.
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Checks if any probe in the window was answered.
+     *
+     * @return True if at least one probe was answered.
+     */
+    public boolean hasReplies() {
+        return loss < 1;
+    }
+
+    @Override
+    public String toString() {
+        if(!hasReplies()) {
+            return "no replies (" + samples + " sent)";
+        }
+        return String.format("p50/p90/p99/max = %.0f/%.0f/%.0f/%.0f ms, jitter %.1f ms, loss %.0f%% (%d samples)",
+                             p50, p90, p99, max, jitter, loss * 100, samples);
+    }
+}
@@ -0,0 +1,91 @@
+package ritopls;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches the status of several regions at once.  Every region's shard-data
+ * request is issued concurrently on a bounded thread pool (or on a virtual
+ * thread each, see ExecutionMode), so a full cycle takes about as long as
+ * the slowest region instead of the sum of all of them.
+ *
+ * @author Chris Meyers
+ */
+public class MultiRegionFetcher {
+    public static final int DEFAULT_MAX_THREADS = 6;
+
+    private final StatusParser parser;
+    private final ExecutorService executor;
+
+    /**
+     * MultiRegionFetcher constructor.
+     *
+     * @param p The parser used to fetch and parse each region.
+     * @param mode Decides the kind of threads the fetches run on.
+     * @param maxThreads The maximum number of concurrent fetches with
+     *                   platform threads.
+     */
+    public MultiRegionFetcher(StatusParser p, ExecutionMode mode, int maxThreads) {
+        parser = p;
+        executor = mode.newFetchExecutor(maxThreads, "Fetch Thread ");
+    }
+
+    /**
+     * MultiRegionFetcher constructor using the configured execution mode
+     * and the default thread limit.
+     *
+     * @param p The parser used to fetch and parse each region.
+     */
+    public MultiRegionFetcher(StatusParser p) {
+        this(p, ExecutionMode.current(), DEFAULT_MAX_THREADS);
+    }
+
+    /**
+     * Fetches every given region concurrently and waits for all of them.
+     *
+     * @param regions The regions to fetch.
+     * @return One combined snapshot of every region.
+     * @throws InterruptedException if the cycle was cancelled.  The fetches
+     *         still running are interrupted.
+     */
+    public MultiRegionSnapshot fetchAll(String[] regions) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        List<Callable<FetchResult>> tasks = new ArrayList<>();
+
+        for(final String region : regions) {
+            tasks.add(new Callable<FetchResult>() {
+                @Override
+                public FetchResult call() {
+                    return parser.fetch(region);
+                }
+            });
+        }
+
+        List<Future<FetchResult>> futures = executor.invokeAll(tasks);
+
+        HashMap<String, FetchResult> results = new HashMap<>();
+        for(int i = 0; i < regions.length; i++) {
+            try {
+                results.put(StaticData.internRegion(regions[i]), futures.get(i).get());
+            }
+            catch(ExecutionException e) {
+                // StatusParser.fetch reports its failures in the result.
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        return new MultiRegionSnapshot(results, start, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Stops the fetch threads.  Any cycle in progress is interrupted.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
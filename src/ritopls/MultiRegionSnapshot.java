@@ -0,0 +1,99 @@
+package ritopls;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The combined result of one MultiRegionFetcher cycle.  Holds the outcome
+ * of every region fetched, with the parsed status of every region that
+ * answered.
+ *
+ * @author Chris Meyers
+ */
+public class MultiRegionSnapshot {
+    private final Map<String, FetchResult> results;
+    private final long fetchedAt;
+    private final long elapsedMillis;
+
+    /**
+     * MultiRegionSnapshot constructor.
+     *
+     * @param results Fetch results keyed by lower case region.
+     * @param fetchedAt The time the cycle started (epoch millis).
+     * @param elapsedMillis How long the whole cycle took.
+     */
+    MultiRegionSnapshot(Map<String, FetchResult> results, long fetchedAt, long elapsedMillis) {
+        this.results = Collections.unmodifiableMap(results);
+        this.fetchedAt = fetchedAt;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the parsed status data for a region.
+     *
+     * @param region The region to look up.
+     * @return The status data, or null if the region failed or was not fetched.
+     */
+    public Shard getStatus(String region) {
+        FetchResult result = results.get(StaticData.internRegion(region));
+        return result == null ? null : result.getShard();
+    }
+
+    /**
+     * Gets the parsed status data of every region that answered.
+     *
+     * @return Status data keyed by lower case region.
+     */
+    public Map<String, Shard> getStatuses() {
+        HashMap<String, Shard> statuses = new HashMap<>();
+        for(Map.Entry<String, FetchResult> entry : results.entrySet()) {
+            if(entry.getValue().hasShard()) {
+                statuses.put(entry.getKey(), entry.getValue().getShard());
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Gets the result of every region fetched, including the failed ones.
+     *
+     * @return Fetch results keyed by lower case region.
+     */
+    public Map<String, FetchResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Gets the number of requests the cycle sent, leaving out those shared
+     * with another caller fetching the same region.
+     *
+     * @return The number of requests.
+     */
+    public int getRequests() {
+        int requests = 0;
+        for(FetchResult result : results.values()) {
+            requests += result.getRequests();
+        }
+        return requests;
+    }
+
+    /**
+     * Gets the time this cycle started.
+     *
+     * @return The start time in epoch millis.
+     */
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    /**
+     * Gets the wall clock time of the whole cycle.  With concurrent fetches
+     * this is roughly the latency of the slowest region.
+     *
+     * @return The cycle time in millis.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -13,6 +13,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.IOException;
+import java.util.List;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 
@@ -220,10 +221,19 @@ public class NotificationTray {
         int i = 0;
 
         for(final String r : rates) {
-            final MenuItem currentRate = new MenuItem(r + "s");
+            final MenuItem currentRate;
+            boolean selected;
+            if(r.equals(StaticData.POLLING_ADAPTIVE)) {
+                currentRate = new MenuItem(r);
+                selected = gui.isAdaptivePolling();
+            }
+            else {
+                currentRate = new MenuItem(r + "s");
+                selected = !gui.isAdaptivePolling() && Integer.parseInt(r) == gui.getPollingRate();
+            }
             pollingRateMenuItems[i] = currentRate;
             setPolling.add(currentRate);
-            if(Integer.parseInt(r) == gui.getPollingRate()) {
+            if(selected) {
                 currentRate.setFont(new Font("default", Font.BOLD, 12));
             }
             i++;
@@ -238,7 +248,13 @@ public class NotificationTray {
                     for(MenuItem mi : pollingRateMenuItems) {
                         mi.setFont(new Font("default", Font.PLAIN, 12));
                     }
-                    gui.setPollingRate(sanitizePollingRate(pollingRateMenuItems[index].getLabel()));
+                    String label = pollingRateMenuItems[index].getLabel();
+                    if(label.equals(StaticData.POLLING_ADAPTIVE)) {
+                        gui.setAdaptivePolling(true);
+                    }
+                    else {
+                        gui.setPollingRate(sanitizePollingRate(label));
+                    }
                     pollingRateMenuItems[index].setFont(new Font("default", Font.BOLD, 12));
                     setVariableMenuItems(-1);
                 }        
@@ -252,9 +268,14 @@ public class NotificationTray {
      * @param refresh the time until the next refresh.
      */
     protected void setVariableMenuItems(int refresh) {
-        if(gui.getJToggleButton(1).isSelected()) {
-            update.setLabel("[" + gui.getCurrentRegion().toUpperCase() + "] :: " + "Refreshing every " + gui.getPollingRate() + "s");
-            //ping.setLabel(gui.getCurrentRegion().toUpperCase() + " ping is " + gui.getParser().getPing());
+        if(gui.getStore().get().isPolling()) {
+            if(gui.isAdaptivePolling()) {
+                update.setLabel("[" + gui.getCurrentRegion().toUpperCase() + "] :: " + "Refreshing adaptively (" + gui.getPollingRate() + "s)");
+            }
+            else {
+                update.setLabel("[" + gui.getCurrentRegion().toUpperCase() + "] :: " + "Refreshing every " + gui.getPollingRate() + "s");
+            }
+            //ping.setLabel(gui.getLatencyMonitor().getSummary(gui.getCurrentRegion()));
             polling.setLabel(StaticData.MENU_POLLING_OFF);
         }
         else {
@@ -276,6 +297,33 @@ public class NotificationTray {
         return Integer.parseInt(timeStr);
     }
     
+    /**
+     * Pops up a message for the changes worth interrupting the user for:
+     * status transitions and new incidents.  Only shown while minimized.
+     * 
+     * @param changes The changes found by the last poll.
+     */
+    protected void showChanges(List<ChangeEvent> changes) {
+        if(trayIcon == null || gui.isVisible()) {
+            return;
+        }
+        
+        StringBuilder message = new StringBuilder();
+        for(ChangeEvent change : changes) {
+            if(change.getType() == ChangeEvent.Type.STATUS_CHANGED ||
+               change.getType() == ChangeEvent.Type.INCIDENT_OPENED) {
+                if(message.length() > 0) {
+                    message.append('\n');
+                }
+                message.append(change);
+            }
+        }
+        
+        if(message.length() > 0) {
+            trayIcon.displayMessage(StaticData.PROGRAM_TITLE, message.toString(), TrayIcon.MessageType.INFO);
+        }
+    }
+    
     /**
      * Gets the current TrayIcon.
      * 
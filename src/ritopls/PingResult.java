@@ -0,0 +1,119 @@
+package ritopls;
+
+/**
+ * The outcome of probing a single host a number of times: how many probes
+ * were sent and answered, and the min/avg/max round trip of the answered
+ * ones.  A host that answered none of them is unreachable, which says
+ * nothing about loss.
+ *
+ * @author Chris Meyers
+ */
+public class PingResult {
+    private final String host;
+    private final int sent;
+    private final int received;
+    private final double minMillis;
+    private final double avgMillis;
+    private final double maxMillis;
+
+    /**
+     * PingResult constructor.
+     *
+     * @param host The host that was probed.
+     * @param sent The number of probes sent.
+     * @param received The number of probes answered.
+     * @param minMillis The fastest round trip.
+     * @param avgMillis The average round trip.
+     * @param maxMillis The slowest round trip.
+     */
+    PingResult(String host, int sent, int received, double minMillis, double avgMillis, double maxMillis) {
+        this.host = host;
+        this.sent = sent;
+        this.received = received;
+        this.minMillis = minMillis;
+        this.avgMillis = avgMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Gets the host that was probed.
+     *
+     * @return The host and port.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Gets the number of probes sent.
+     *
+     * @return The number of probes.
+     */
+    public int getSent() {
+        return sent;
+    }
+
+    /**
+     * Gets the number of probes answered.
+     *
+     * @return The number of answers.
+     */
+    public int getReceived() {
+        return received;
+    }
+
+    /**
+     * Checks if any probe was answered.
+     *
+     * @return True if at least one probe was answered.
+     */
+    public boolean hasReplies() {
+        return received > 0;
+    }
+
+    /**
+     * Gets the fastest round trip.
+     *
+     * @return The round trip in millis, 0 without answers.
+     */
+    public double getMinMillis() {
+        return minMillis;
+    }
+
+    /**
+     * Gets the average round trip.
+     *
+     * @return The round trip in millis, 0 without answers.
+     */
+    public double getAvgMillis() {
+        return avgMillis;
+    }
+
+    /**
+     * Gets the slowest round trip.
+     *
+     * @return The round trip in millis, 0 without answers.
+     */
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * Gets the share of probes that went unanswered by a host that did
+     * answer the others.
+     *
+     * @return The loss, from 0 to 1; 0 if the host was unreachable.
+     */
+    public double getLoss() {
+        return received == 0 ? 0 : (sent - received) / (double)sent;
+    }
+
+    @Override
+    public String toString() {
+        if(!hasReplies()) {
+            return host + ": unreachable (" + sent + " probes unanswered)";
+        }
+        return String.format("%s: min/avg/max = %.1f/%.1f/%.1f ms, loss %.0f%%",
+                             host, minMillis, avgMillis, maxMillis, getLoss() * 100);
+    }
+}
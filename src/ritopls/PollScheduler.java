@@ -0,0 +1,228 @@
+package ritopls;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every periodic task of the program (status polls, latency probes
+ * and the refresh countdown) on platform threads.
+ *
+ * One timer thread decides when each task is due.  Tasks that may block,
+ * like a poll waiting on a slow shard, are handed to a bounded pool of
+ * worker threads, so they never hold up the timer or each other; idle
+ * workers go away after a minute.  Ticks, which never block, run on the
+ * timer thread itself and keep their rate whatever the workers are doing.
+ *
+ * Repeating tasks are timed against absolute deadlines: each run is due
+ * one interval after the previous run was due, not after it finished, so
+ * the time taken by the task itself never adds up into drift.  A run that
+ * overruns its slot starts the next one straight away instead of trying
+ * to catch up on every missed slot.
+ *
+ * @author Chris Meyers
+ */
+public class PollScheduler implements TaskScheduler {
+    // Enough for a poll loop per region plus the probe and prefetches.
+    public static final int DEFAULT_WORKERS = 16;
+    public static final long WORKER_IDLE_SECONDS = 60;
+
+    private final ScheduledExecutorService timer;
+    private final ThreadPoolExecutor workers;
+    private final int maxWorkers;
+
+    /**
+     * PollScheduler constructor.
+     *
+     * @param maxWorkers The most worker threads running blocking tasks at
+     *                   once.  Further tasks wait for a free worker.
+     */
+    public PollScheduler(int maxWorkers) {
+        this.maxWorkers = maxWorkers;
+        timer = Executors.newSingleThreadScheduledExecutor(newThreadFactory("Poll Timer "));
+        workers = new ThreadPoolExecutor(maxWorkers, maxWorkers, WORKER_IDLE_SECONDS, TimeUnit.SECONDS,
+                                         new LinkedBlockingQueue<Runnable>(), newThreadFactory("Poll Worker "));
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * PollScheduler constructor using the default number of workers.
+     */
+    public PollScheduler() {
+        this(DEFAULT_WORKERS);
+    }
+
+    private static ThreadFactory newThreadFactory(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, prefix + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    @Override
+    public RepeatingTask scheduleRepeating(Runnable task, long initialDelayMillis, Interval interval) {
+        RepeatingTask repeating = new RepeatingTask(task, interval, false);
+        repeating.start(initialDelayMillis);
+        return repeating;
+    }
+
+    @Override
+    public RepeatingTask scheduleAtFixedRate(Runnable task, long periodMillis) {
+        return scheduleRepeating(task, 0, fixed(periodMillis));
+    }
+
+    @Override
+    public RepeatingTask scheduleTick(Runnable task, long periodMillis) {
+        RepeatingTask repeating = new RepeatingTask(task, fixed(periodMillis), true);
+        repeating.start(0);
+        return repeating;
+    }
+
+    private static Interval fixed(final long periodMillis) {
+        return new Interval() {
+            @Override
+            public long nextMillis() {
+                return periodMillis;
+            }
+        };
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        workers.execute(task);
+    }
+
+    @Override
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    @Override
+    public String getDescription() {
+        return "1 timer thread, up to " + maxWorkers + " platform worker threads";
+    }
+
+    /**
+     * A task that schedules its own next run from an absolute deadline.
+     */
+    public class RepeatingTask implements Task, Runnable {
+        private final Runnable task;
+        private final Interval interval;
+        private final boolean onTimer;
+        private Future<?> future; // The pending timer or the worker running it.
+        private long nextRunNanos;
+        private long lastRunNanos;
+        private boolean ran;
+        private boolean running;
+        private boolean cancelled;
+
+        /**
+         * Runs on the timer thread when the task is due.
+         */
+        private final Runnable dispatch = new Runnable() {
+            @Override
+            public void run() {
+                if(onTimer) {
+                    RepeatingTask.this.run();
+                    return;
+                }
+                synchronized(RepeatingTask.this) {
+                    if(!cancelled) {
+                        future = workers.submit(RepeatingTask.this);
+                    }
+                }
+            }
+        };
+
+        RepeatingTask(Runnable task, Interval interval, boolean onTimer) {
+            this.task = task;
+            this.interval = interval;
+            this.onTimer = onTimer;
+        }
+
+        private synchronized void start(long delayMillis) {
+            nextRunNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            future = timer.schedule(dispatch, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            synchronized(this) {
+                if(cancelled) {
+                    return;
+                }
+                running = true;
+                ran = true;
+                lastRunNanos = nextRunNanos;
+            }
+
+            try {
+                task.run();
+            }
+            catch(RuntimeException e) {
+                // Keep the schedule going; one bad run shouldn't stop polling.
+                System.out.println(e);
+            }
+            finally {
+                synchronized(this) {
+                    running = false;
+                    if(!cancelled) {
+                        scheduleNext(lastRunNanos);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Schedules the next run one interval after the given due time.
+         *
+         * @param dueNanos The time the previous run was due.
+         */
+        private void scheduleNext(long dueNanos) {
+            long now = System.nanoTime();
+            nextRunNanos = Math.max(now, dueNanos + TimeUnit.MILLISECONDS.toNanos(interval.nextMillis()));
+            future = timer.schedule(dispatch, nextRunNanos - now, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * {@inheritDoc}  A run in progress, or a first run still to come,
+         * picks the new interval up by itself.
+         */
+        @Override
+        public synchronized void reschedule() {
+            if(cancelled || running || !ran) {
+                return;
+            }
+            future.cancel(false);
+            scheduleNext(lastRunNanos);
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            if(future != null) {
+                future.cancel(true);
+            }
+        }
+
+        @Override
+        public synchronized long getDelayMillis() {
+            if(running) {
+                return 0;
+            }
+            return Math.max(0, TimeUnit.NANOSECONDS.toMillis(nextRunNanos - System.nanoTime()));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ritopls;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts upstream API requests and poll cycles so the number of requests
+ * made per cycle can be checked from the Diagnostics window.
+ *
+ * @author Chris Meyers
+ */
+public class PollStats {
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong cycles = new AtomicLong();
+    private final AtomicLong lastCycleRequests = new AtomicLong();
+    private final AtomicLong maxCycleRequests = new AtomicLong();
+
+    /**
+     * Records a request sent to the API.
+     */
+    public void requestSent() {
+        requests.incrementAndGet();
+    }
+
+    /**
+     * Records the end of a poll cycle.
+     *
+     * @param cycleRequests The number of requests the cycle made.
+     */
+    public void cycleCompleted(long cycleRequests) {
+        cycles.incrementAndGet();
+        lastCycleRequests.set(cycleRequests);
+
+        long max;
+        while(cycleRequests > (max = maxCycleRequests.get())) {
+            if(maxCycleRequests.compareAndSet(max, cycleRequests)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gets the total number of requests sent to the API.
+     *
+     * @return The number of requests.
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Builds a human readable summary of the counters.
+     *
+     * @return A single line report.
+     */
+    public String getReport() {
+        return "requests: " + requests.get()
+             + ", poll cycles: " + cycles.get()
+             + ", last cycle: " + lastCycleRequests.get()
+             + ", most in one cycle: " + maxCycleRequests.get() + "\n";
+    }
+}
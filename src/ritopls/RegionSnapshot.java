@@ -0,0 +1,93 @@
+package ritopls;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The last known status of a region, its incidents and when the API last
+ * confirmed them.  Immutable.
+ *
+ * @author Chris Meyers
+ */
+public final class RegionSnapshot {
+    private final Shard status;
+    private final Map<String, List<IncidentUpdate>> incidents;
+    private final long fetchedAt;
+
+    /**
+     * RegionSnapshot constructor.
+     *
+     * @param status The status of the region.
+     * @param incidents The incidents keyed by service name; must not be
+     *                  changed afterwards.
+     * @param fetchedAt When the API last confirmed the status
+     *                  (System.currentTimeMillis()).
+     */
+    public RegionSnapshot(Shard status, Map<String, List<IncidentUpdate>> incidents, long fetchedAt) {
+        this.status = status;
+        this.incidents = incidents;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Gets the status of the region.
+     *
+     * @return The status of every service.
+     */
+    public Shard getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the incidents of the region.
+     *
+     * @return Incident updates keyed by service name, newest first.
+     */
+    public Map<String, List<IncidentUpdate>> getIncidents() {
+        return incidents;
+    }
+
+    /**
+     * Gets when the API last confirmed the status.
+     *
+     * @return The time in epoch millis.
+     */
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    /**
+     * Gets how old the snapshot is.
+     *
+     * @return The time since the API last confirmed it (in milliseconds).
+     */
+    public long getAgeMillis() {
+        return Math.max(0, System.currentTimeMillis() - fetchedAt);
+    }
+
+    /**
+     * Gets how old the snapshot is in the largest whole unit, e.g. "5m".
+     *
+     * @return The age as shown in the window.
+     */
+    public String getAgeText() {
+        long seconds = getAgeMillis() / 1000;
+        if(seconds < 60) {
+            return seconds + "s";
+        }
+        else if(seconds < 3600) {
+            return (seconds / 60) + "m";
+        }
+        return (seconds / 3600) + "h";
+    }
+
+    /**
+     * Makes a copy confirmed by the API at a later time.
+     *
+     * @param time When the API confirmed it.
+     * @return The new snapshot.
+     */
+    public RegionSnapshot confirmedAt(long time) {
+        return new RegionSnapshot(status, incidents, time);
+    }
+}
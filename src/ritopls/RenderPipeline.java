@@ -0,0 +1,114 @@
+package ritopls;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Hands view models to the EDT, at most one batch per render interval.
+ *
+ * Any thread may submit a ViewModel.  Only the newest one waiting is kept,
+ * and a single invokeLater applies it, so updates that come in faster than
+ * the window is redrawn are dropped instead of queueing up on the EDT.
+ *
+ * @author Chris Meyers
+ */
+public class RenderPipeline {
+    private final Renderer renderer;
+    private final long intervalNanos;
+    private final AtomicReference<ViewModel> pending = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long lastApplied; // EDT only
+    private final Runnable flush;
+
+    /**
+     * Draws a view model.  Always called on the EDT.
+     */
+    public interface Renderer {
+        void render(ViewModel view);
+    }
+
+    /**
+     * RenderPipeline constructor.
+     *
+     * @param renderer Draws each view model that isn't dropped.
+     * @param intervalMillis The shortest time between two renders.
+     */
+    public RenderPipeline(Renderer renderer, long intervalMillis) {
+        this.renderer = renderer;
+        this.intervalNanos = intervalMillis * 1000000L;
+        this.lastApplied = System.nanoTime() - intervalNanos;
+        this.flush = new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * Queues a view model, replacing any that hasn't been drawn yet.
+     *
+     * @param view The view model to draw.
+     */
+    public void submit(ViewModel view) {
+        submitted.incrementAndGet();
+        if(pending.getAndSet(view) != null) {
+            dropped.incrementAndGet();
+        }
+
+        if(scheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(flush);
+        }
+    }
+
+    /**
+     * Draws the newest view model, or waits until the render interval has
+     * passed since the last one.
+     */
+    private void flush() {
+        long wait = lastApplied + intervalNanos - System.nanoTime();
+        if(wait > 0) {
+            Timer timer = new Timer((int)Math.max(1, wait / 1000000L), new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    flush();
+                }
+            });
+            timer.setRepeats(false);
+            timer.start();
+            return;
+        }
+
+        // Let the next submit schedule a flush before taking the view,
+        // so nothing submitted from here on is left waiting.
+        scheduled.set(false);
+        ViewModel view = pending.getAndSet(null);
+        if(view == null) {
+            return;
+        }
+
+        lastApplied = System.nanoTime();
+        applied.incrementAndGet();
+        renderer.render(view);
+    }
+
+    /**
+     * Builds a short report of the pipeline for the diagnostics window.
+     *
+     * @return A multi-line report.
+     */
+    public String getReport() {
+        return "render interval: " + (intervalNanos / 1000000L) + "ms\n"
+             + "views submitted: " + submitted.get() + '\n'
+             + "views rendered: " + applied.get() + '\n'
+             + "views dropped: " + dropped.get() + '\n';
+    }
+}
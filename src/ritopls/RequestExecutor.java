@@ -0,0 +1,182 @@
+package ritopls;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs API requests with a hard deadline and, optionally, a hedged second
+ * request.
+ *
+ * Requests run on their own threads so the poll thread is never stuck
+ * behind a stalled socket for longer than the deadline.  When hedging is
+ * on and a request is still running after the host's usual latency, an
+ * identical second request is started and whichever finishes first wins.
+ * A request that fails early is retried the same way if time is left.
+ *
+ * @author Chris Meyers
+ */
+public class RequestExecutor {
+    private final ExecutorService executor;
+    private final String description;
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong deadlinesMissed = new AtomicLong();
+
+    /**
+     * Decides whether a hedged request may be sent.
+     */
+    public interface HedgeGate {
+        /**
+         * Called right before a hedged request is started.
+         *
+         * @return True to send the hedged request, false to skip it.
+         */
+        boolean allowHedge();
+    }
+
+    /**
+     * RequestExecutor constructor.
+     *
+     * @param mode Decides the kind of threads requests run on.
+     */
+    public RequestExecutor(ExecutionMode mode) {
+        executor = mode.newTaskExecutor("Request Thread ");
+        description = mode.getRequestDescription();
+    }
+
+    /**
+     * RequestExecutor constructor using the configured execution mode.
+     */
+    public RequestExecutor() {
+        this(ExecutionMode.current());
+    }
+
+    /**
+     * Runs a request and waits for it until the deadline.
+     *
+     * @param <T> The type the request produces.
+     * @param request The request to run.  It may be run twice when hedging.
+     * @param deadlineMillis How long to wait for a result in total.
+     * @param hedgeAfterMillis How long to wait before sending a hedged
+     *                         request, or 0 or less to never hedge.
+     * @param gate Decides if a hedged request may be sent, may be null.
+     * @return The result of the first request to succeed.
+     * @throws SocketTimeoutException if no request succeeded before the deadline.
+     * @throws InterruptedIOException if the calling thread was interrupted.
+     * @throws IOException if every request failed.
+     */
+    public <T> T execute(Callable<T> request, long deadlineMillis, long hedgeAfterMillis, HedgeGate gate) throws IOException {
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        ArrayList<Future<T>> futures = new ArrayList<>(2);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        boolean hedgeAvailable = hedgeAfterMillis > 0;
+        IOException lastError = null;
+
+        futures.add(completion.submit(request));
+        int running = 1;
+
+        try {
+            while(true) {
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0) {
+                    deadlinesMissed.incrementAndGet();
+                    throw new SocketTimeoutException("No response within " + deadlineMillis + "ms");
+                }
+
+                long wait = remaining;
+                if(hedgeAvailable && running > 0) {
+                    wait = Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(hedgeAfterMillis));
+                }
+
+                Future<T> done = running > 0 ? completion.poll(wait, TimeUnit.NANOSECONDS) : null;
+
+                if(done != null) {
+                    running--;
+                    try {
+                        T result = done.get();
+                        if(futures.size() > 1 && done == futures.get(1)) {
+                            hedgeWins.incrementAndGet();
+                        }
+                        return result;
+                    }
+                    catch(ExecutionException e) {
+                        lastError = toIOException(e.getCause());
+                    }
+                }
+
+                if(running == 0 && lastError instanceof ApiClient.HttpStatusException) {
+                    // The server answered; asking again won't change its mind.
+                    throw lastError;
+                }
+
+                if(done == null || running == 0) {
+                    // Either the first request is slow or it failed early.
+                    if(hedgeAvailable && (gate == null || gate.allowHedge())) {
+                        hedgeAvailable = false;
+                        hedges.incrementAndGet();
+                        futures.add(completion.submit(request));
+                        running++;
+                    }
+                    else if(running == 0) {
+                        throw lastError;
+                    }
+                    else {
+                        hedgeAvailable = false;
+                    }
+                }
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response");
+        }
+        // A losing request is left to finish on its own so its connection
+        // can go back into the keep-alive cache.
+    }
+
+    /**
+     * Builds a human readable summary of the executor counters.
+     *
+     * @return A single line report.
+     */
+    public String getReport() {
+        return "request threads: " + description
+             + ", hedged requests: " + hedges.get()
+             + ", hedge wins: " + hedgeWins.get()
+             + ", deadlines missed: " + deadlinesMissed.get() + "\n";
+    }
+
+    /**
+     * Stops the request threads.  Requests in progress are interrupted.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Turns the cause of a failed request into the IOException reported to
+     * the caller, so every failure ends up in a typed outcome.
+     *
+     * @param t The cause.
+     * @return The cause itself, or an IOException wrapping it.
+     */
+    private static IOException toIOException(Throwable t) {
+        if(t instanceof IOException) {
+            return (IOException)t;
+        }
+        if(t instanceof Error) {
+            throw (Error)t;
+        }
+        return new IOException(t);
+    }
+}
@@ -0,0 +1,310 @@
+package ritopls;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces API requests so they stay within Riot's rate limits.
+ *
+ * Every API key gets a set of token buckets per region for the application
+ * limits (X-App-Rate-Limit), and every region gets a set for the shard-data
+ * method limits (X-Method-Rate-Limit).  Limits start at the development key
+ * defaults and are replaced by whatever the server reports.  When the
+ * server answers 429, requests for that region are held until Retry-After
+ * has passed instead of failing.
+ *
+ * @author Chris Meyers
+ */
+public class RequestScheduler {
+    public static final String DEFAULT_APP_RATE_LIMIT = "20:1,100:120";
+    public static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+
+    private final HashMap<String, Limits> limits;
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong deferredMillis = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * RequestScheduler constructor.
+     */
+    public RequestScheduler() {
+        limits = new HashMap<>();
+    }
+
+    /**
+     * Waits until a request to the given region is allowed and takes a
+     * token from every bucket that applies to it.
+     *
+     * @param appKey The API key the request is made with.
+     * @param region The region being requested.
+     * @throws InterruptedException
+     */
+    public void acquire(String appKey, String region) throws InterruptedException {
+        boolean waited = false;
+
+        while(true) {
+            long wait;
+            synchronized(this) {
+                long now = System.currentTimeMillis();
+                Limits app = getLimits(appKey(appKey, region), DEFAULT_APP_RATE_LIMIT);
+                Limits method = getLimits(methodKey(region), null);
+
+                wait = Math.max(app.waitTime(now), method.waitTime(now));
+                if(wait == 0) {
+                    app.take();
+                    method.take();
+                    return;
+                }
+            }
+
+            if(!waited) {
+                deferred.incrementAndGet();
+                waited = true;
+            }
+            deferredMillis.addAndGet(wait);
+            Thread.sleep(wait);
+        }
+    }
+
+    /**
+     * Takes a token for a request to the given region only if one is
+     * available right now.
+     *
+     * @param appKey The API key the request is made with.
+     * @param region The region being requested.
+     * @return True if the request may be sent, false otherwise.
+     */
+    public synchronized boolean tryAcquire(String appKey, String region) {
+        long now = System.currentTimeMillis();
+        Limits app = getLimits(appKey(appKey, region), DEFAULT_APP_RATE_LIMIT);
+        Limits method = getLimits(methodKey(region), null);
+
+        if(app.waitTime(now) == 0 && method.waitTime(now) == 0) {
+            app.take();
+            method.take();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Updates the limits for a region from the headers of a response.
+     *
+     * @param appKey The API key the request was made with.
+     * @param region The region that was requested.
+     * @param response The response received.
+     */
+    public synchronized void update(String appKey, String region, ApiResponse<?> response) {
+        long now = System.currentTimeMillis();
+        Limits app = getLimits(appKey(appKey, region), DEFAULT_APP_RATE_LIMIT);
+        Limits method = getLimits(methodKey(region), null);
+
+        app.setLimits(response.getHeader("X-App-Rate-Limit"), response.getHeader("X-App-Rate-Limit-Count"), now);
+        method.setLimits(response.getHeader("X-Method-Rate-Limit"), response.getHeader("X-Method-Rate-Limit-Count"), now);
+
+        if(response.isRateLimited()) {
+            throttled.incrementAndGet();
+
+            long until = now + parseRetryAfter(response.getHeader("Retry-After"));
+            // A 429 without X-Rate-Limit-Type comes from the underlying
+            // service, which only affects this method.
+            if("application".equalsIgnoreCase(response.getHeader("X-Rate-Limit-Type"))) {
+                app.blockUntil(until);
+            }
+            else {
+                method.blockUntil(until);
+            }
+        }
+    }
+
+    /**
+     * Builds a human readable summary of the scheduler state.
+     *
+     * @return A multi-line report.
+     */
+    public synchronized String getReport() {
+        StringBuilder report = new StringBuilder();
+
+        report.append("deferred requests: ").append(deferred.get())
+              .append(", time deferred: ").append(deferredMillis.get()).append("ms")
+              .append(", 429s: ").append(throttled.get()).append('\n');
+
+        for(Map.Entry<String, Limits> entry : limits.entrySet()) {
+            report.append("    ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Gets the limits for a key, creating them if needed.
+     *
+     * @param key The limits key.
+     * @param defaults The limits to start with, may be null for none.
+     * @return The limits for the key.
+     */
+    private Limits getLimits(String key, String defaults) {
+        Limits l = limits.get(key);
+        if(l == null) {
+            l = new Limits(defaults);
+            limits.put(key, l);
+        }
+        return l;
+    }
+
+    private static String appKey(String appKey, String region) {
+        // Only a short prefix of the key is kept so it never ends up in a report.
+        String shortKey = appKey.length() > 8 ? appKey.substring(0, 8) : appKey;
+        return "app " + shortKey + "... " + StaticData.internRegion(region);
+    }
+
+    private static String methodKey(String region) {
+        return "shard-data " + StaticData.internRegion(region);
+    }
+
+    /**
+     * Parses a Retry-After header value.
+     *
+     * @param value The number of seconds to wait, may be null.
+     * @return The number of milliseconds to wait.
+     */
+    private static long parseRetryAfter(String value) {
+        if(value == null) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(value.trim())) * 1000;
+        }
+        catch(NumberFormatException e) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+    }
+
+    /**
+     * The token buckets for a single limit header, plus any Retry-After
+     * block that applies to them.
+     */
+    private static class Limits {
+        private String definition;
+        private ArrayList<TokenBucket> buckets;
+        private long blockedUntil;
+
+        Limits(String defaults) {
+            buckets = new ArrayList<>();
+            setLimits(defaults, null, System.currentTimeMillis());
+        }
+
+        /**
+         * Replaces the buckets if the server reports different limits, and
+         * drains tokens the server says have already been used.
+         *
+         * @param limitHeader Limits as "count:seconds,count:seconds".
+         * @param countHeader Current usage in the same format.
+         * @param now The current time.
+         */
+        void setLimits(String limitHeader, String countHeader, long now) {
+            if(limitHeader != null && !limitHeader.equals(definition)) {
+                ArrayList<TokenBucket> updated = new ArrayList<>();
+                for(long[] limit : parse(limitHeader)) {
+                    updated.add(new TokenBucket(limit[0], limit[1] * 1000, now));
+                }
+                buckets = updated;
+                definition = limitHeader;
+            }
+
+            if(countHeader != null) {
+                for(long[] count : parse(countHeader)) {
+                    for(TokenBucket bucket : buckets) {
+                        if(bucket.windowMillis == count[1] * 1000) {
+                            bucket.consumed(count[0], now);
+                        }
+                    }
+                }
+            }
+        }
+
+        void blockUntil(long until) {
+            blockedUntil = Math.max(blockedUntil, until);
+        }
+
+        long waitTime(long now) {
+            long wait = Math.max(0, blockedUntil - now);
+            for(TokenBucket bucket : buckets) {
+                wait = Math.max(wait, bucket.waitTime(now));
+            }
+            return wait;
+        }
+
+        void take() {
+            for(TokenBucket bucket : buckets) {
+                bucket.take();
+            }
+        }
+
+        private static ArrayList<long[]> parse(String header) {
+            ArrayList<long[]> parsed = new ArrayList<>();
+            for(String pair : header.split(",")) {
+                String[] parts = pair.trim().split(":");
+                if(parts.length == 2) {
+                    try {
+                        parsed.add(new long[]{Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim())});
+                    }
+                    catch(NumberFormatException e) {}
+                }
+            }
+            return parsed;
+        }
+
+        @Override
+        public String toString() {
+            return (definition == null ? "no limits" : definition)
+                 + (blockedUntil > System.currentTimeMillis() ? " (blocked)" : "");
+        }
+    }
+
+    /**
+     * A bucket holding up to "capacity" tokens.  Tokens flow back in
+     * continuously at capacity per window, pro-rated to the time elapsed,
+     * so an empty bucket is full again one window later.
+     */
+    private static class TokenBucket {
+        private final long capacity;
+        private final long windowMillis;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(long capacity, long windowMillis, long now) {
+            this.capacity = capacity;
+            this.windowMillis = Math.max(1, windowMillis);
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        private void refill(long now) {
+            if(now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * (double)capacity / windowMillis);
+                lastRefill = now;
+            }
+        }
+
+        long waitTime(long now) {
+            refill(now);
+            if(tokens >= 1) {
+                return 0;
+            }
+            return (long)Math.ceil((1 - tokens) * windowMillis / Math.max(1, capacity));
+        }
+
+        void take() {
+            tokens -= 1;
+        }
+
+        void consumed(long used, long now) {
+            refill(now);
+            tokens = Math.min(tokens, capacity - used);
+        }
+    }
+}
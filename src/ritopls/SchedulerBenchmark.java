@@ -0,0 +1,247 @@
+package ritopls;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the ways the poll loops can be run when polling many sources.
+ *
+ * Every source is a repeating task that fetches shard-data through the
+ * same StatusParser.fetch the program uses, so each poll blocks on a real
+ * URLConnection read.  The requests go to a local HTTP server that answers
+ * with the bundled offline data after a delay.  Every source has a host of
+ * its own (127.0.x.y), so the per-host connection limit of ApiClient never
+ * queues one source behind another.
+ *
+ * Each setup is run with 12 sources (one per region) and with 500, and the
+ * benchmark reports how many polls got done, how late they started against
+ * their deadline, how long the fetches took, how many failed and the peak
+ * number of platform threads the poll loops and requests needed.  With
+ * virtual threads the platform threads are the carrier threads.  The
+ * threads of the benchmark and of the server aren't counted.
+ *
+ * Run with: java -cp rito-pls.jar ritopls.SchedulerBenchmark [seconds] [intervalMillis] [delayMillis]
+ *
+ * @author Chris Meyers
+ */
+public class SchedulerBenchmark {
+    private static final int[] SOURCES = {12, 500};
+    private static final String THREAD_PREFIX = "Benchmark ";
+    private static final long SAMPLE_MILLIS = 50;
+
+    /**
+     * @param args The seconds per run, the poll interval and the server's
+     *             delay in millis; 10, 1000 and 100 by default.
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 10;
+        long intervalMillis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        long delayMillis = args.length > 2 ? Long.parseLong(args[2]) : 100;
+
+        HttpServer server = startServer(delayMillis);
+        // Must be set before StaticData is loaded.
+        System.setProperty("ritopls.apiUrl", "http://{key}:" + server.getAddress().getPort() + "/shard-data");
+        System.setProperty(ApiKeyProvider.KEY_PROPERTY, "benchmark");
+
+        System.out.println("Sources poll every " + intervalMillis + "ms, the server answers after "
+                         + delayMillis + "ms, " + seconds + "s per run.");
+        if(!ExecutionMode.isVirtualSupported()) {
+            System.out.println("Virtual threads need Java 21 or later; skipping the virtual thread runs.");
+        }
+        System.out.println();
+        System.out.println(String.format("%-48s %7s %8s %8s %9s %9s %9s %7s %8s",
+                           "scheduler", "sources", "polls", "expected", "p50 late", "p99 late",
+                           "p99 fetch", "errors", "threads"));
+
+        for(int sources : SOURCES) {
+            run(new PollScheduler(), ExecutionMode.PLATFORM, sources, seconds, intervalMillis);
+            run(new ThreadPerTaskScheduler(ExecutionMode.PLATFORM.newThreadFactory("Platform Loop "),
+                                           "one platform thread per task"),
+                ExecutionMode.PLATFORM, sources, seconds, intervalMillis);
+            if(ExecutionMode.isVirtualSupported()) {
+                run(ExecutionMode.VIRTUAL.newScheduler(), ExecutionMode.VIRTUAL, sources, seconds, intervalMillis);
+            }
+        }
+
+        server.stop(0);
+        System.exit(0);
+    }
+
+    /**
+     * Starts the local server every source polls.
+     *
+     * @param delayMillis How long the server waits before it answers.
+     * @return The started server.
+     */
+    private static HttpServer startServer(final long delayMillis) throws IOException {
+        File source = resources.ResourceLoader.getFile("json/offline.json");
+        final byte[] body = Files.readAllBytes(source.toPath());
+
+        // Bound to every address, so 127.0.x.y all reach it.
+        HttpServer server = HttpServer.create(new InetSocketAddress(0), 1024);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(delayMillis);
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try(OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool(ExecutionMode.PLATFORM.newThreadFactory(THREAD_PREFIX + "Server ")));
+        server.start();
+        return server;
+    }
+
+    /**
+     * Runs one scheduler and execution mode with the given number of
+     * sources and prints a line of results.
+     */
+    private static void run(TaskScheduler scheduler, ExecutionMode mode, int sources, long seconds,
+                            final long intervalMillis) throws Exception {
+        final StatusParser parser = new StatusParser(mode);
+        final LatencyHistogram lateness = new LatencyHistogram();
+        final LatencyHistogram fetches = new LatencyHistogram();
+        final AtomicLong polls = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        ArrayList<TaskScheduler.Task> tasks = new ArrayList<>();
+
+        System.gc();
+        Thread.sleep(500);
+        ThreadSampler sampler = new ThreadSampler(countThreads());
+        ExecutorService sampling = Executors.newSingleThreadExecutor(ExecutionMode.PLATFORM.newThreadFactory(THREAD_PREFIX + "Sampler "));
+        sampling.execute(sampler);
+
+        TaskScheduler.Interval interval = new TaskScheduler.Interval() {
+            @Override
+            public long nextMillis() {
+                return intervalMillis;
+            }
+        };
+
+        long start = System.nanoTime();
+        for(int i = 0; i < sources; i++) {
+            final String host = "127.0." + (i / 250) + "." + (i % 250 + 1);
+            // Spread the first polls over one interval, like real sources would be.
+            final long firstDue = start + (intervalMillis * 1000000L * i) / sources;
+            tasks.add(scheduler.scheduleRepeating(new Runnable() {
+                private long due = firstDue;
+
+                @Override
+                public void run() {
+                    long now = System.nanoTime();
+                    synchronized(lateness) {
+                        lateness.record(Math.max(0, (now - due) / 1000));
+                    }
+                    due += intervalMillis * 1000000L;
+                    polls.incrementAndGet();
+
+                    FetchResult result = parser.fetch(host);
+                    if(result.getOutcome() == FetchResult.Outcome.INTERRUPTED) {
+                        return;
+                    }
+                    if(!result.hasShard()) {
+                        errors.incrementAndGet();
+                    }
+                    synchronized(fetches) {
+                        fetches.record((System.nanoTime() - now) / 1000);
+                    }
+                }
+            }, (firstDue - start) / 1000000L, interval));
+        }
+
+        Thread.sleep(seconds * 1000);
+        for(TaskScheduler.Task task : tasks) {
+            task.cancel();
+        }
+        scheduler.shutdown();
+        parser.getRequestExecutor().shutdown();
+        sampling.shutdownNow();
+
+        long expected = sources * (seconds * 1000 / intervalMillis);
+        synchronized(lateness) {
+            synchronized(fetches) {
+                System.out.println(String.format("%-48s %7d %8d %8d %7.1fms %7.1fms %7.1fms %7d %8d",
+                                   scheduler.getDescription(), sources, polls.get(), expected,
+                                   lateness.getValueAtPercentile(0.50) / 1000.0,
+                                   lateness.getValueAtPercentile(0.99) / 1000.0,
+                                   fetches.getValueAtPercentile(0.99) / 1000.0,
+                                   errors.get(), sampler.getPeak()));
+            }
+        }
+
+        // Let the cancelled threads die before the next run is measured.
+        Thread.sleep(1000);
+    }
+
+    /**
+     * Counts the live platform threads, leaving out those of the benchmark
+     * and of the server.  Virtual threads aren't listed.
+     */
+    private static int countThreads() {
+        int count = 0;
+        for(Thread thread : Thread.getAllStackTraces().keySet()) {
+            String name = thread.getName();
+            if(!name.startsWith(THREAD_PREFIX) && !name.startsWith("HTTP-Dispatcher")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Samples the number of platform threads until interrupted and keeps
+     * the peak above a baseline.
+     */
+    private static class ThreadSampler implements Runnable {
+        private final int baseline;
+        private final AtomicInteger peak = new AtomicInteger();
+
+        ThreadSampler(int baseline) {
+            this.baseline = baseline;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while(!Thread.currentThread().isInterrupted()) {
+                    int count = countThreads() - baseline;
+                    if(count > peak.get()) {
+                        peak.set(count);
+                    }
+                    Thread.sleep(SAMPLE_MILLIS);
+                }
+            }
+            catch(InterruptedException e) {
+                // Done sampling.
+            }
+        }
+
+        int getPeak() {
+            return peak.get();
+        }
+    }
+}
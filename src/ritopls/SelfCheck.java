@@ -0,0 +1,353 @@
+package ritopls;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.JButton;
+
+/**
+ * Checks the parts of the program that can be run without a window or a
+ * network, such as the snapshot diff and the incident lifecycle it reports.
+ *
+ * Every check prints a line when it fails, and the program exits with 1 if
+ * any did, so it can be run after a build.
+ *
+ * Run with: java -cp rito-pls.jar ritopls.SelfCheck
+ *
+ * @author Chris Meyers
+ */
+public class SelfCheck {
+    private static final String REGION = "na";
+
+    private static int checks;
+    private static int failures;
+
+    /**
+     * @param args Not used.
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        checkSnapshotDiff();
+        checkIncidentStore();
+        checkLatencyStats();
+        checkEventBindings();
+        checkRequestScheduler();
+        checkSingleFlight();
+
+        System.out.println(checks + " checks, " + failures + " failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Checks the events SnapshotDiff reports as an incident is opened,
+     * updated and resolved.
+     */
+    private static void checkSnapshotDiff() {
+        Shard quiet = shard(service("Game", Status.ONLINE));
+        List<ChangeEvent> events = SnapshotDiff.diff(REGION, null, quiet);
+        check(count(events, ChangeEvent.Type.STATUS_CHANGED) == 1 && events.get(0).getFrom() == null,
+              "a first snapshot reports every service as new");
+        check(SnapshotDiff.diff(REGION, quiet, quiet).isEmpty(), "the same snapshot has no changes");
+        check(SnapshotDiff.diff(REGION, quiet, shard(service("Game", Status.ONLINE))).isEmpty(),
+              "an equal snapshot has no changes");
+
+        Shard opened = shard(service("Game", Status.ALERT, incident("1", true, update("1a", "2016-01-01T10:00:00Z"))));
+        events = SnapshotDiff.diff(REGION, quiet, opened);
+        check(count(events, ChangeEvent.Type.STATUS_CHANGED) == 1, "a status change is reported");
+        check(count(events, ChangeEvent.Type.INCIDENT_OPENED) == 1, "a new incident is opened");
+        check(count(events, ChangeEvent.Type.UPDATE_APPENDED) == 1, "the first update of a new incident is reported");
+
+        Shard updated = shard(service("Game", Status.ALERT, incident("1", true, update("1a", "2016-01-01T10:00:00Z"),
+                                                                               update("1b", "2016-01-01T10:05:00Z"))));
+        events = SnapshotDiff.diff(REGION, opened, updated);
+        check(events.size() == 1 && events.get(0).getType() == ChangeEvent.Type.UPDATE_APPENDED
+              && events.get(0).getUpdate().getId().equals("1b"), "only the new update of an incident is reported");
+
+        Shard inactive = shard(service("Game", Status.ONLINE, incident("1", false, update("1a", "2016-01-01T10:00:00Z"),
+                                                                                 update("1b", "2016-01-01T10:05:00Z"))));
+        events = SnapshotDiff.diff(REGION, updated, inactive);
+        check(count(events, ChangeEvent.Type.INCIDENT_RESOLVED) == 1, "an incident no longer active is resolved");
+        check(SnapshotDiff.diff(REGION, inactive, inactive).isEmpty(), "a resolved incident is only resolved once");
+        check(count(SnapshotDiff.diff(REGION, quiet, inactive), ChangeEvent.Type.INCIDENT_OPENED) == 0,
+              "an incident first seen inactive is not opened");
+
+        events = SnapshotDiff.diff(REGION, updated, quiet);
+        check(count(events, ChangeEvent.Type.INCIDENT_RESOLVED) == 1, "an incident no longer reported is resolved");
+
+        events = SnapshotDiff.diff(REGION, updated, shard(service("Store", Status.ONLINE)));
+        check(count(events, ChangeEvent.Type.INCIDENT_RESOLVED) == 1,
+              "the incidents of a service no longer reported are resolved");
+    }
+
+    /**
+     * Checks that the incident store keeps its views while nothing changes,
+     * remembers updates that drop out and evicts them in time.
+     */
+    private static void checkIncidentStore() throws InterruptedException {
+        IncidentUpdate first = update("1a", "2016-01-01T10:00:00Z");
+        IncidentUpdate second = update("1b", "2016-01-01T10:05:00Z");
+        Shard both = shard(service("Game", Status.ALERT, incident("1", true, first, second)));
+        Shard one = shard(service("Game", Status.ALERT, incident("1", true, first)));
+        Shard none = shard(service("Game", Status.ONLINE));
+
+        IncidentStore store = new IncidentStore(10, 60000);
+        Map<String, List<IncidentUpdate>> views = store.update(both);
+        List<IncidentUpdate> game = views.get("Game");
+        check(game != null && game.size() == 2 && game.get(0).getId().equals("1b"),
+              "the store lists a service's updates newest first");
+        check(store.update(both) == views, "the views are kept while the updates don't change");
+
+        views = store.update(one);
+        check(views.get("Game").size() == 1, "an update no longer reported leaves the views");
+        check(store.contains("1b"), "an update no longer reported is remembered");
+        store.update(both);
+        check(store.getReport().contains(" 2 added"), "an update reported again isn't added twice");
+
+        store = new IncidentStore(10, 0);
+        store.update(both);
+        Thread.sleep(5);
+        views = store.update(none);
+        check(views.isEmpty() && !store.contains("1a"), "an update past its age is evicted");
+
+        store = new IncidentStore(1, 60000);
+        store.update(one);
+        store.update(both);
+        check(store.contains("1a") && store.contains("1b"), "the current updates are kept over the size");
+        store.update(none);
+        check(!store.contains("1a") && store.contains("1b"), "the oldest update is evicted over the size");
+    }
+
+    /**
+     * Checks the percentiles of the latency histogram and the jitter and
+     * loss of the latency recorder.
+     */
+    private static void checkLatencyStats() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        check(histogram.getValueAtPercentile(0.5) == 0, "an empty histogram has no percentiles");
+        for(long micros = 1000; micros <= 100000; micros += 1000) {
+            histogram.record(micros);
+        }
+        check(histogram.getCount() == 100 && histogram.getMax() == 100000, "the histogram counts every value");
+        check(Math.abs(histogram.getValueAtPercentile(0.50) - 50000) <= 50000 * 0.03,
+              "the median is within 3% of the recorded one");
+        check(Math.abs(histogram.getValueAtPercentile(0.99) - 99000) <= 99000 * 0.03,
+              "the 99th percentile is within 3% of the recorded one");
+        check(histogram.getValueAtPercentile(1.0) == 100000, "the top percentile is the largest value");
+        histogram.record(LatencyHistogram.MAX_MICROS * 2);
+        check(histogram.getCount() == 101 && histogram.getValueAtPercentile(0.99) < LatencyHistogram.MAX_MICROS,
+              "a value above the maximum is still counted");
+
+        LatencyRecorder recorder = new LatencyRecorder(60000, 6);
+        check(recorder.getStats() == null, "an empty recorder has no statistics");
+        recorder.record(10);
+        recorder.record(20);
+        recorder.record(-1);
+        recorder.record(15);
+        LatencyStats stats = recorder.getStats();
+        check(stats.getSamples() == 4 && Math.abs(stats.getLoss() - 0.25) < 1e-9,
+              "a lost probe counts towards the loss");
+        check(Math.abs(stats.getJitter() - 7.5) < 1e-9, "jitter is the mean difference between replies");
+        check(stats.hasReplies(), "a recorder with replies says so");
+    }
+
+    /**
+     * Checks that binding a button again replaces its listener, as every
+     * redraw of the incident buttons does.
+     */
+    private static void checkEventBindings() {
+        final int[] presses = new int[1];
+        EventBindings bindings = new EventBindings();
+        JButton button = new JButton();
+        for(int i = 0; i < 3; i++) {
+            bindings.bind(button, new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    presses[0]++;
+                }
+            });
+        }
+        check(bindings.getListenerCount() == 1, "binding a button again doesn't add a listener");
+        button.doClick(0);
+        check(presses[0] == 1, "a button bound three times runs its listener once");
+    }
+
+    /**
+     * Checks that the request scheduler follows the limits the server
+     * reports, refills its buckets over time and holds a region after a 429.
+     */
+    private static void checkRequestScheduler() throws InterruptedException {
+        RequestScheduler scheduler = new RequestScheduler();
+        check(scheduler.tryAcquire("key", "na"), "a request is allowed before any limits are known");
+
+        scheduler.update("key", "na", response(200, "X-Method-Rate-Limit", "2:1", "X-Method-Rate-Limit-Count", "2:1"));
+        check(!scheduler.tryAcquire("key", "na"), "a request is held once the server says the limit is used up");
+        Thread.sleep(600);
+        check(scheduler.tryAcquire("key", "na"), "a token flows back in within the window");
+        check(!scheduler.tryAcquire("key", "na"), "only the tokens that flowed back are handed out");
+        check(scheduler.tryAcquire("key", "euw"), "another region has limits of its own");
+
+        scheduler.update("key", "euw", response(ApiClient.HTTP_TOO_MANY_REQUESTS, "Retry-After", "1"));
+        check(!scheduler.tryAcquire("key", "euw"), "a region is held after a 429");
+        Thread.sleep(1100);
+        check(scheduler.tryAcquire("key", "euw"), "a region is released once Retry-After has passed");
+    }
+
+    /**
+     * Checks that a caller joining a call in flight shares its result, or
+     * its failure, and that a failed call doesn't stay in flight.
+     */
+    private static void checkSingleFlight() throws InterruptedException {
+        final SingleFlight<String, String> flight = new SingleFlight<>();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        SingleFlight.Call<String> slow = new SingleFlight.Call<String>() {
+            @Override
+            public String call() {
+                calls.incrementAndGet();
+                try {
+                    release.await();
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "shard";
+            }
+        };
+
+        AtomicReference<Object> leader = startFlight(flight, slow);
+        awaitInFlight(flight);
+        AtomicReference<Object> follower = startFlight(flight, slow);
+        while(!flight.getReport().contains("coalesced: 1") && follower.get() == null) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        awaitFlight(leader);
+        awaitFlight(follower);
+        check(calls.get() == 1, "a caller joining a call in flight doesn't start another");
+        check(follower.get() instanceof SingleFlight.Result && ((SingleFlight.Result<?>)follower.get()).isShared()
+              && "shard".equals(((SingleFlight.Result<?>)follower.get()).getValue()),
+              "a caller joining a call in flight shares its result");
+
+        final CountDownLatch fail = new CountDownLatch(1);
+        SingleFlight.Call<String> failing = new SingleFlight.Call<String>() {
+            @Override
+            public String call() {
+                try {
+                    fail.await();
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("failed");
+            }
+        };
+        leader = startFlight(flight, failing);
+        awaitInFlight(flight);
+        follower = startFlight(flight, failing);
+        while(!flight.getReport().contains("coalesced: 2") && follower.get() == null) {
+            Thread.sleep(10);
+        }
+        fail.countDown();
+        awaitFlight(leader);
+        awaitFlight(follower);
+        check(leader.get() instanceof IllegalStateException, "a failed call throws to the caller that ran it");
+        check(follower.get() instanceof IllegalStateException, "a failed call throws to the callers that joined it");
+        check(flight.getInFlight() == 0, "a failed call doesn't stay in flight");
+
+        calls.set(0);
+        check("shard".equals(flight.execute(REGION, slow).getValue()) && calls.get() == 1,
+              "a call after a failure runs again");
+    }
+
+    //============================== HELPERS ===============================
+    /**
+     * Records the outcome of a check and prints it if it failed.
+     *
+     * @param passed Whether the check passed.
+     * @param description What was checked.
+     */
+    private static void check(boolean passed, String description) {
+        checks++;
+        if(!passed) {
+            failures++;
+            System.out.println("FAILED: " + description);
+        }
+    }
+
+    /**
+     * Runs a single-flight call for the region on a thread of its own.  The
+     * reference is set to the result or the exception once it's done.
+     */
+    private static AtomicReference<Object> startFlight(final SingleFlight<String, String> flight,
+                                                       final SingleFlight.Call<String> call) {
+        final AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    outcome.set(flight.execute(REGION, call));
+                }
+                catch(InterruptedException | RuntimeException e) {
+                    outcome.set(e);
+                }
+            }
+        }, "SelfCheck Flight");
+        thread.setDaemon(true);
+        thread.start();
+        return outcome;
+    }
+
+    private static void awaitInFlight(SingleFlight<String, String> flight) throws InterruptedException {
+        while(flight.getInFlight() == 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitFlight(AtomicReference<Object> outcome) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(outcome.get() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static ApiResponse<Void> response(int code, String... headers) {
+        TreeMap<String, String> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for(int i = 0; i < headers.length; i += 2) {
+            map.put(headers[i], headers[i + 1]);
+        }
+        return new ApiResponse<>(code, null, null, null, map);
+    }
+
+    private static int count(List<ChangeEvent> events, ChangeEvent.Type type) {
+        int count = 0;
+        for(ChangeEvent event : events) {
+            if(event.getType() == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Shard shard(Service... services) {
+        return new Shard(REGION, new ArrayList<>(Arrays.asList(services)));
+    }
+
+    private static Service service(String name, Status status, Incident... incidents) {
+        return new Service(name, status, new ArrayList<>(Arrays.asList(incidents)));
+    }
+
+    private static Incident incident(String id, boolean active, IncidentUpdate... updates) {
+        return new Incident(id, active, updates[0].getUpdatedAt(), new ArrayList<>(Arrays.asList(updates)));
+    }
+
+    private static IncidentUpdate update(String id, String updatedAt) {
+        return new IncidentUpdate(id, Severity.INFO, updatedAt, "Update " + id);
+    }
+}
@@ -0,0 +1,74 @@
+package ritopls;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The status and incidents of one service (Client, Game, Store or Website)
+ * in a shard.
+ *
+ * @author Chris Meyers
+ */
+public final class Service {
+    private final String name;
+    private final Status status;
+    private final List<Incident> incidents;
+    private final List<IncidentUpdate> updates;
+
+    /**
+     * Service constructor.
+     *
+     * @param name The service name.
+     * @param status The current status of the service.
+     * @param incidents The incidents in the order the API sent them.
+     */
+    public Service(String name, Status status, List<Incident> incidents) {
+        this.name = name;
+        this.status = status;
+        this.incidents = Collections.unmodifiableList(incidents);
+
+        ArrayList<IncidentUpdate> all = new ArrayList<>();
+        for(Incident incident : incidents) {
+            all.addAll(incident.getUpdates());
+        }
+        Collections.reverse(all); // Newest first.
+        this.updates = Collections.unmodifiableList(all);
+    }
+
+    /**
+     * Gets the service name.
+     *
+     * @return The service name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the current status of the service.
+     *
+     * @return The current status.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the incidents of the service.
+     *
+     * @return The incidents in the order the API sent them.
+     */
+    public List<Incident> getIncidents() {
+        return incidents;
+    }
+
+    /**
+     * Gets the updates of every incident of the service.
+     *
+     * @return All incident updates, newest first.
+     */
+    public List<IncidentUpdate> getUpdates() {
+        return updates;
+    }
+}
@@ -0,0 +1,73 @@
+package ritopls;
+
+/**
+ * The severity of an incident update as reported by the API.  Constants
+ * are declared from least to most severe.  Info and Warn share a
+ * precedence, as they always have, and both show as "!".
+ *
+ * @author Chris Meyers
+ */
+public enum Severity {
+    UNKNOWN("Unknown", StaticData.WTF_SYMBOL, 0),
+    INFO("Info", StaticData.INFO_SYMBOL, 1),
+    WARN("Warn", StaticData.WARN_SYMBOL, 1),
+    ALERT("Alert", StaticData.ALERT_SYMBOL, 2),
+    ERROR("Error", StaticData.ERROR_SYMBOL, 3);
+
+    // values() copies the array on every call.
+    private static final Severity[] VALUES = values();
+
+    private final String displayName;
+    private final String symbol;
+    private final int precedence;
+
+    Severity(String displayName, String symbol, int precedence) {
+        this.displayName = displayName;
+        this.symbol = symbol;
+        this.precedence = precedence;
+    }
+
+    /**
+     * Gets the text shown in front of an incident update.
+     *
+     * @return The display name of this severity.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Gets the text shown on an incident button.
+     *
+     * @return The symbol of this severity.
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Checks if this severity takes precedence over another.
+     *
+     * @param other The other severity.
+     * @return True if this one is more severe; false for Info against
+     *         Warn and the other way around.
+     */
+    public boolean isMoreSevereThan(Severity other) {
+        return precedence > other.precedence;
+    }
+
+    /**
+     * Looks up a severity by the value used in the API.
+     *
+     * @param raw The raw severity value, in any case.
+     * @return The matching severity, or UNKNOWN if there is none.
+     */
+    public static Severity fromString(String raw) {
+        for(Severity severity : VALUES) {
+            if(severity.displayName.equalsIgnoreCase(raw)) {
+                return severity;
+            }
+        }
+        return UNKNOWN;
+    }
+}
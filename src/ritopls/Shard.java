@@ -0,0 +1,58 @@
+package ritopls;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the status of every service in one region.
+ *
+ * @author Chris Meyers
+ */
+public final class Shard {
+    private final String region;
+    private final List<Service> services;
+
+    /**
+     * Shard constructor.
+     *
+     * @param region The region this shard belongs to.
+     * @param services The services in the order the API sent them.
+     */
+    public Shard(String region, List<Service> services) {
+        this.region = region;
+        this.services = Collections.unmodifiableList(services);
+    }
+
+    /**
+     * Gets the region this shard belongs to.
+     *
+     * @return The region.
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Gets every service of the shard.
+     *
+     * @return The services in the order the API sent them.
+     */
+    public List<Service> getServices() {
+        return services;
+    }
+
+    /**
+     * Looks up a service by name.
+     *
+     * @param name The service name.
+     * @return The service, or null if the shard doesn't report it.
+     */
+    public Service getService(String name) {
+        for(Service service : services) {
+            if(service.getName().equals(name)) {
+                return service;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,141 @@
+package ritopls;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs at most one call per key at a time.  A caller that asks for a key
+ * while a call for it is in flight waits for that call and shares its
+ * result instead of starting another one.
+ *
+ * @author Chris Meyers
+ * @param <K> The key type.
+ * @param <V> The result type.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * The work done once per flight.
+     *
+     * @param <V> The result type.
+     */
+    public interface Call<V> {
+        V call();
+    }
+
+    /**
+     * The result of a call, and whether this caller shared it with the
+     * caller that ran it.
+     *
+     * @param <V> The result type.
+     */
+    public static final class Result<V> {
+        private final V value;
+        private final boolean shared;
+
+        Result(V value, boolean shared) {
+            this.value = value;
+            this.shared = shared;
+        }
+
+        /**
+         * Gets the result of the call.
+         *
+         * @return The value the call returned.
+         */
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Checks if the call was run by another caller.
+         *
+         * @return True if this caller waited for someone else's call.
+         */
+        public boolean isShared() {
+            return shared;
+        }
+    }
+
+    /**
+     * Runs a call for a key, or waits for the one already in flight.
+     *
+     * @param key The key.
+     * @param call The work to do if no call for the key is in flight.
+     * @return The result of the call.
+     * @throws InterruptedException if interrupted while waiting for
+     *         another caller's call.
+     */
+    public Result<V> execute(K key, Call<V> call) throws InterruptedException {
+        Flight<V> mine = new Flight<>();
+        Flight<V> existing = flights.putIfAbsent(key, mine);
+        if(existing != null) {
+            coalesced.incrementAndGet();
+            return new Result<>(existing.await(), true);
+        }
+
+        started.incrementAndGet();
+        try {
+            V value = call.call();
+            mine.complete(value, null);
+            return new Result<>(value, false);
+        }
+        catch(RuntimeException | Error e) {
+            mine.complete(null, e);
+            throw e;
+        }
+        finally {
+            flights.remove(key, mine);
+        }
+    }
+
+    /**
+     * Gets the number of calls running right now.
+     *
+     * @return The number of keys in flight.
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    /**
+     * Builds a short report for the diagnostics window.
+     *
+     * @return A multi-line report.
+     */
+    public String getReport() {
+        return "single-flight in flight: " + getInFlight() + '\n'
+             + "single-flight calls: " + started.get() + '\n'
+             + "single-flight coalesced: " + coalesced.get() + '\n';
+    }
+
+    /**
+     * A call in progress that other callers can wait for.
+     */
+    private static class Flight<V> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile V value;
+        private volatile Throwable failure;
+
+        void complete(V v, Throwable t) {
+            value = v;
+            failure = t;
+            done.countDown();
+        }
+
+        V await() throws InterruptedException {
+            done.await();
+            if(failure instanceof RuntimeException) {
+                throw (RuntimeException)failure;
+            }
+            if(failure instanceof Error) {
+                throw (Error)failure;
+            }
+            return value;
+        }
+    }
+}
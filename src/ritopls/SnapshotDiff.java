@@ -0,0 +1,105 @@
+package ritopls;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two snapshots of a region and lists what changed between them:
+ * status transitions, incidents opened, updates appended to an incident
+ * and incidents resolved.  An incident is resolved when it is no longer
+ * reported or no longer active.
+ *
+ * The events go to the tray and the console log.  The window doesn't read
+ * them; it is drawn from the AppState (see StatusHandler).
+ *
+ * @author Chris Meyers
+ */
+public class SnapshotDiff {
+
+    /**
+     * Lists the changes from one snapshot to the next.
+     *
+     * @param region The region of both snapshots.
+     * @param previous The older snapshot, or null if there is none.
+     * @param current The newer snapshot.
+     * @return The changes, empty if the snapshots say the same thing.
+     */
+    public static List<ChangeEvent> diff(String region, Shard previous, Shard current) {
+        if(previous == current) {
+            return Collections.emptyList();
+        }
+
+        ArrayList<ChangeEvent> events = new ArrayList<>();
+        for(Service service : current.getServices()) {
+            Service old = previous == null ? null : previous.getService(service.getName());
+            diffService(region, old, service, events);
+        }
+
+        // Services that disappeared take their incidents with them.
+        if(previous != null) {
+            for(Service old : previous.getServices()) {
+                if(current.getService(old.getName()) == null) {
+                    for(Incident incident : old.getIncidents()) {
+                        if(incident.isActive()) {
+                            events.add(ChangeEvent.incidentResolved(region, old.getName(), incident));
+                        }
+                    }
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Adds the changes of one service.
+     */
+    private static void diffService(String region, Service old, Service service, List<ChangeEvent> events) {
+        String name = service.getName();
+        if(old == null || old.getStatus() != service.getStatus()) {
+            events.add(ChangeEvent.statusChanged(region, name, old == null ? null : old.getStatus(), service.getStatus()));
+        }
+
+        Map<String, Incident> oldIncidents = new HashMap<>();
+        if(old != null) {
+            for(Incident incident : old.getIncidents()) {
+                if(incident.isActive()) {
+                    oldIncidents.put(incident.getId(), incident);
+                }
+            }
+        }
+
+        for(Incident incident : service.getIncidents()) {
+            Incident before = oldIncidents.remove(incident.getId());
+            if(!incident.isActive()) {
+                if(before != null) {
+                    events.add(ChangeEvent.incidentResolved(region, name, incident));
+                }
+                continue;
+            }
+
+            if(before == null) {
+                events.add(ChangeEvent.incidentOpened(region, name, incident));
+            }
+
+            HashSet<String> seen = new HashSet<>();
+            if(before != null) {
+                for(IncidentUpdate update : before.getUpdates()) {
+                    seen.add(update.getId());
+                }
+            }
+            for(IncidentUpdate update : incident.getUpdates()) {
+                if(seen.add(update.getId())) {
+                    events.add(ChangeEvent.updateAppended(region, name, incident, update));
+                }
+            }
+        }
+
+        for(Incident gone : oldIncidents.values()) {
+            events.add(ChangeEvent.incidentResolved(region, name, gone));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package ritopls;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the last known snapshot of every region in a small local file so
+ * the window can show something the moment it opens, before any request
+ * is made.  Each region is stored as a shard-data object, the same shape
+ * the API returns, next to the time it was last confirmed.
+ *
+ * @author Chris Meyers
+ */
+public class SnapshotStore {
+    private final File file;
+
+    /**
+     * SnapshotStore constructor.
+     *
+     * @param file The snapshot file.  It and its directory are created on
+     *             the first save.
+     */
+    public SnapshotStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the file the snapshots are kept in.
+     *
+     * @return The snapshot file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the snapshots saved by the last run.  The incidents of the
+     * returned snapshots are empty; they are rebuilt from the status by
+     * the caller.
+     *
+     * @return Snapshots keyed by lower case region, empty if there is no
+     *         file or it can't be read.
+     */
+    public Map<String, RegionSnapshot> load() {
+        if(!file.isFile()) {
+            return Collections.emptyMap();
+        }
+
+        HashMap<String, RegionSnapshot> snapshots = new HashMap<>();
+        try(JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while(reader.hasNext()) {
+                if(reader.nextName().equals("regions")) {
+                    reader.beginObject();
+                    while(reader.hasNext()) {
+                        String region = StaticData.internRegion(reader.nextName());
+                        snapshots.put(region, readSnapshot(reader, region));
+                    }
+                    reader.endObject();
+                }
+                else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        catch(IOException | RuntimeException e) {
+            // A damaged file only costs the warm start.
+            System.out.println("Ignoring snapshot file " + file + ": " + e);
+            return Collections.emptyMap();
+        }
+        return snapshots;
+    }
+
+    /**
+     * Reads the snapshot of one region.
+     *
+     * @param reader The reader, positioned at the start of the region.
+     * @param region The region.
+     * @return The snapshot, without incidents.
+     * @throws IOException
+     */
+    private static RegionSnapshot readSnapshot(JsonReader reader, String region) throws IOException {
+        Shard status = null;
+        long fetchedAt = 0;
+
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "fetched_at":
+                    fetchedAt = reader.nextLong();
+                    break;
+                case "shard":
+                    status = StatusStreamParser.readShard(reader, region);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if(status == null) {
+            throw new IOException("No shard-data for " + region);
+        }
+        return new RegionSnapshot(status, Collections.<String, List<IncidentUpdate>>emptyMap(), fetchedAt);
+    }
+
+    /**
+     * Writes the snapshots to the file.  They are written to a temporary
+     * file first and moved over the old one, so a crash never leaves a
+     * half written file behind.
+     *
+     * @param snapshots Snapshots keyed by lower case region.
+     */
+    public synchronized void save(Map<String, RegionSnapshot> snapshots) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = new File(dir, file.getName() + ".tmp");
+        try {
+            if(dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Can't create " + dir);
+            }
+
+            try(JsonWriter writer = new JsonWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+                writer.beginObject();
+                writer.name("regions").beginObject();
+                for(Map.Entry<String, RegionSnapshot> entry : snapshots.entrySet()) {
+                    writer.name(entry.getKey()).beginObject();
+                    writer.name("fetched_at").value(entry.getValue().getFetchedAt());
+                    writer.name("shard");
+                    writeShard(writer, entry.getValue().getStatus());
+                    writer.endObject();
+                }
+                writer.endObject();
+                writer.endObject();
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch(AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch(IOException e) {
+            System.out.println("Couldn't save snapshot file " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Writes a shard-data object the way StatusStreamParser reads it.
+     *
+     * @param writer The writer.
+     * @param status The status of a region.
+     * @throws IOException
+     */
+    private static void writeShard(JsonWriter writer, Shard status) throws IOException {
+        writer.beginObject();
+        writer.name("services").beginArray();
+        for(Service service : status.getServices()) {
+            writer.beginObject();
+            writer.name("name").value(service.getName());
+            writer.name("status").value(service.getStatus().getDisplayName());
+            writer.name("incidents").beginArray();
+            for(Incident incident : service.getIncidents()) {
+                writer.beginObject();
+                writer.name("id").value(incident.getId());
+                writer.name("active").value(incident.isActive());
+                writer.name("created_at").value(incident.getCreatedAt());
+                writer.name("updates").beginArray();
+                for(IncidentUpdate update : incident.getUpdates()) {
+                    writer.beginObject();
+                    writer.name("id").value(update.getId());
+                    writer.name("severity").value(update.getSeverity().getDisplayName());
+                    writer.name("updated_at").value(update.getUpdatedAt());
+                    writer.name("content").value(update.getContent());
+                    writer.endObject();
+                }
+                writer.endArray();
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+}
@@ -0,0 +1,162 @@
+package ritopls;
+
+import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Measures the time from starting the program to the first paint of the
+ * window, with and without a snapshot file from a previous run.
+ *
+ * The window is built the way Main builds it.  For every run the benchmark
+ * reports how long it took until the window was painted, what the first
+ * status label showed and how many shard-data requests had been sent by
+ * then.  Since no request is made before the window is up, the time to
+ * first paint doesn't depend on how fast the API answers.  The snapshot
+ * file is a temporary one filled with the bundled offline data, so the
+ * real one is left alone.  Needs a display.
+ *
+ * Run with: java -cp rito-pls.jar ritopls.StartupBenchmark [runs]
+ *
+ * @author Chris Meyers
+ */
+public class StartupBenchmark {
+
+    /**
+     * @param args The number of startups to measure per run, 5 by default.
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        if(GraphicsEnvironment.isHeadless()) {
+            System.out.println("The startup benchmark needs a display.");
+            return;
+        }
+
+        // Must be set before StaticData is loaded.
+        File file = File.createTempFile("rito-pls-snapshots", ".json");
+        System.setProperty("ritopls.snapshotFile", file.getPath());
+        // Runs after the windows' shutdown hooks have saved their state.
+        file.deleteOnExit();
+        new File(file.getPath() + ".tmp").deleteOnExit();
+        SnapshotStore snapshotStore = new SnapshotStore(file);
+
+        // The first window pays for loading the classes; it isn't counted.
+        file.delete();
+        measure();
+
+        System.out.println(String.format("%-10s %12s %12s %12s %12s",
+                           "start", "p50 paint", "max paint", "first label", "requests"));
+        file.delete();
+        report("cold", runs);
+        snapshotStore.save(createSnapshots());
+        report("warm", runs);
+
+        System.exit(0);
+    }
+
+    /**
+     * Measures a number of startups and prints a line of results.
+     */
+    private static void report(String start, int runs) throws Exception {
+        long[] millis = new long[runs];
+        Result last = null;
+        long requests = 0;
+        for(int i = 0; i < runs; i++) {
+            last = measure();
+            millis[i] = last.millis;
+            requests += last.requests;
+        }
+        Arrays.sort(millis);
+
+        System.out.println(String.format("%-10s %10dms %10dms %12s %12d",
+                           start, millis[runs / 2], millis[runs - 1], last.firstLabel, requests));
+    }
+
+    /**
+     * Opens a window, waits for its first paint and closes it again.
+     */
+    private static Result measure() throws IOException, InterruptedException, InvocationTargetException {
+        final CountDownLatch painted = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        final GUI gui = new GUI();
+
+        // A see-through glass pane is painted after everything under it.
+        PaintListener glass = new PaintListener(painted);
+        glass.setOpaque(false);
+        gui.setGlassPane(glass);
+        glass.setVisible(true);
+
+        gui.setLocationRelativeTo(null);
+        gui.setVisible(true);
+        painted.await();
+
+        final Result result = new Result();
+        result.millis = (System.nanoTime() - start) / 1000000L;
+        result.requests = gui.getParser().getPollStats().getRequests();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                result.firstLabel = gui.getStatusLabels()[0].getText();
+                gui.dispose();
+            }
+        });
+        gui.getLatencyMonitor().stop();
+        gui.getPollScheduler().shutdown();
+        gui.getRegionFetcher().shutdown();
+        return result;
+    }
+
+    /**
+     * Builds a snapshot of every region from the bundled offline data.
+     */
+    private static HashMap<String, RegionSnapshot> createSnapshots() throws IOException {
+        HashMap<String, RegionSnapshot> snapshots = new HashMap<>();
+        File source = resources.ResourceLoader.getFile("json/offline.json");
+        for(String region : StaticData.getRegions()) {
+            try(InputStream in = new FileInputStream(source)) {
+                Shard status = StatusStreamParser.parse(in, StaticData.internRegion(region));
+                snapshots.put(StaticData.internRegion(region),
+                              new RegionSnapshot(status, new HashMap<String, List<IncidentUpdate>>(),
+                                                 System.currentTimeMillis()));
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Counts a latch down when it is painted.
+     */
+    private static class PaintListener extends JPanel {
+        private static final long serialVersionUID = 1L;
+        private final CountDownLatch painted;
+
+        PaintListener(CountDownLatch painted) {
+            this.painted = painted;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            painted.countDown();
+        }
+    }
+
+    private static class Result {
+        long millis;
+        long requests;
+        String firstLabel;
+    }
+}
@@ -1,9 +1,11 @@
 package ritopls;
 
 import java.awt.Color;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * This class stores the static values needed to populate fields in the GUI.
@@ -25,6 +27,7 @@ public class StaticData {
     public static final String MENU_DEBUG             = "Debug";
     public static final String MENU_DEBUG_MODE        = "Debug Mode";
     public static final String MENU_DEBUG_FILE        = "Set Debug File";
+    public static final String MENU_DIAGNOSTICS       = "Diagnostics";
     public static final String MENU_ABOUT             = "About";
     public static final String BUTTON_POLLING_ON      = "Checking...";
     public static final String BUTTON_POLLING_OFF     = "Click to check";
@@ -40,11 +43,34 @@ public class StaticData {
     public static final String SERVICE_ALERT          = "Alert"; 
     public static final String SERVICE_DEPLOYING      = "Deploying"; 
     public static final int DEFAULT_POLLING_RATE      = 10;
+    public static final String POLLING_ADAPTIVE       = "Adaptive";
+    public static final int ADAPTIVE_POLLING_FLOOR    = 5;
+    public static final int ADAPTIVE_POLLING_CEILING  = 60;
+    public static final int ADAPTIVE_CALM_POLLS       = 3;
+    public static final int INCIDENT_STORE_SIZE       = 1000;
+    public static final int INCIDENT_MAX_AGE_HOURS    = 24;
+    public static final int PREFETCH_DELAY_MILLIS     = 300;
+    public static final int PREFETCH_MAX_AGE_SECONDS  = 30;
     
-    public static final String INFO_STRING            = "Info";
-    public static final String WARN_STRING            = "Warn";
-    public static final String ALERT_STRING           = "Alert";
-    public static final String ERROR_STRING           = "Error";
+    public static final int CONNECT_TIMEOUT_MILLIS    = Integer.getInteger("ritopls.connectTimeout", 5000);
+    public static final int READ_TIMEOUT_MILLIS       = Integer.getInteger("ritopls.readTimeout", 10000);
+    public static final int REQUEST_DEADLINE_MILLIS   = Integer.getInteger("ritopls.requestDeadline", 15000);
+    public static final boolean HEDGE_REQUESTS        = Boolean.getBoolean("ritopls.hedgeRequests");
+    public static final double HEDGE_PERCENTILE       = 0.95;
+    public static final int MIN_HEDGE_DELAY_MILLIS    = 250;
+    public static final int PING_PORT                 = Integer.getInteger("ritopls.pingPort", 80);
+    public static final int PING_SAMPLES              = Integer.getInteger("ritopls.pingSamples", 3);
+    public static final int PING_TIMEOUT_MILLIS       = Integer.getInteger("ritopls.pingTimeout", 1000);
+    public static final int PING_INTERVAL_SECONDS     = Integer.getInteger("ritopls.pingInterval", 5);
+    public static final int LATENCY_WINDOW_SECONDS    = Integer.getInteger("ritopls.latencyWindow", 300);
+    public static final int LATENCY_WINDOW_SLOTS      = 10;
+    public static final boolean VIRTUAL_THREADS       = Boolean.getBoolean("ritopls.virtualThreads");
+    public static final boolean WATCH_ALL_REGIONS     = Boolean.parseBoolean(System.getProperty("ritopls.watchAllRegions", "true"));
+    public static final String API_URL                = System.getProperty("ritopls.apiUrl",
+        "https://{key}.api.riotgames.com/lol/status/v3/shard-data");
+    public static final int RENDER_INTERVAL_MILLIS    = Integer.getInteger("ritopls.renderInterval", 50);
+    public static final String SNAPSHOT_FILE          = System.getProperty("ritopls.snapshotFile",
+        System.getProperty("user.home") + File.separator + ".rito-pls" + File.separator + "snapshots.json");
     
     public static final String INFO_SYMBOL            = "!";
     public static final String WARN_SYMBOL            = "!";
@@ -77,19 +103,23 @@ public class StaticData {
     private static final String[] services            = {"Client", "Game", "Store", "Website"};
     private static final String[] regions             = {"NA", "EUW", "EUNE", "LAN", "LAS", "BR", "TR", "RU", "OCE", "JP", "KR", "PBE"};
     private static final String[] regionsKeys         = {"na1", "euw1", "eun1", "la1", "la2", "br1", "tr1", "ru", "oc1", "jp1", "kr", "pbe1"};
+    private static final String[] regionsLower        = {"na", "euw", "eune", "lan", "las", "br", "tr", "ru", "oce", "jp", "kr", "pbe"};
 
 
-    private static final int INFO_PRECEDENCE          = 1;
-    private static final int WARN_PRECEDENCE          = 1;
-    private static final int ALERT_PRECEDENCE         = 2;
-    private static final int ERROR_PRECEDENCE         = 3;
-    
-    private static final String[] POLLING_RATES       = {"1", "5", "10", "30", "45", "60"};
+    private static final String[] POLLING_RATES       = {"1", "5", "10", "30", "45", "60", POLLING_ADAPTIVE};
 
     private static final HashMap<String, String> regionIpAddresses = new HashMap();
 
+    /**
+     * Builds the shard-data URL of a region from API_URL.
+     * 
+     * @param region The region.
+     * @return The URL, with {key} replaced by the region's key, or by the
+     *         region itself if it isn't a known one.
+     */
     public static String buildURL(String region) {
-        return "https://" + StaticData.getRegionKey(region) + ".api.riotgames.com/lol/status/v3/shard-data";
+        String key = getRegionKey(region);
+        return API_URL.replace("{key}", key == null ? region : key);
     }
 
     /**
@@ -139,54 +169,86 @@ public class StaticData {
      * @return The associated key value for the given region.
      */
     public static String getRegionKey(String region) {
-        int i = 0;
-        for(String r : regions) {
-            if(r.toUpperCase().equals(region.toUpperCase())) {
+        for(int i = 0; i < regions.length; i++) {
+            if(regions[i].equalsIgnoreCase(region)) {
                 return regionsKeys[i];
             }
-            i++;
         }
 
         return null;
     }
 
     /**
-     * Determines the most severe incident in a given incident list.
-     * 
-     * @param severities List of severities for a specific service.
-     * @return The highest severity in the list of severities.
+     * Gets the canonical lower case form of a region, so every part of the
+     * program uses the same String instance and no new one is made per
+     * lookup.
+     *
+     * @param region The region, in any case.
+     * @return The shared lower case constant, or a lower case copy for a
+     *         region that isn't known.
      */
-    public static String determineMostSevere(ArrayList<String> severities) {
-        int currentPrec = 0, mostSevere = 0;
-        String currentSeverity = "", highestSeverity = "";
+    public static String internRegion(String region) {
+        for(String r : regionsLower) {
+            if(r == region) {
+                return r;
+            }
+        }
+        for(String r : regionsLower) {
+            if(r.equalsIgnoreCase(region)) {
+                return r;
+            }
+        }
+        return region.toLowerCase();
+    }
 
-        for (String severity : severities) {
-            switch (severity) {
-                case INFO_STRING:
-                    currentPrec = INFO_PRECEDENCE;
-                    currentSeverity = INFO_STRING;
-                    break;
-                case WARN_STRING:
-                    currentPrec = WARN_PRECEDENCE;
-                    currentSeverity = WARN_STRING;
-                    break;
-                case ALERT_STRING:
-                    currentPrec = ALERT_PRECEDENCE;
-                    currentSeverity = ALERT_STRING;
-                    break;
-                case ERROR_STRING:
-                    currentPrec = ERROR_PRECEDENCE;
-                    currentSeverity = ERROR_STRING;
-                    break;
-                default:
-                    break;
+    /**
+     * Gets the upper case form of a region shown to the user, without
+     * making a new String for a known region.
+     *
+     * @param region The region, in any case.
+     * @return The shared upper case constant, or an upper case copy for a
+     *         region that isn't known.
+     */
+    public static String displayRegion(String region) {
+        for(String r : regions) {
+            if(r.equalsIgnoreCase(region)) {
+                return r;
+            }
+        }
+        return region.toUpperCase();
+    }
+
+    /**
+     * Gets the shared constant for a service name sent by the API.
+     *
+     * @param name The service name.
+     * @return The matching constant, or name itself if there is none.
+     */
+    public static String internServiceName(String name) {
+        for(String service : services) {
+            if(service.equalsIgnoreCase(name)) {
+                return service;
             }
-            if(currentPrec > mostSevere) {
-                mostSevere = currentPrec;
-                highestSeverity = currentSeverity;
+        }
+        return name;
+    }
+
+    /**
+     * Determines the most severe incident in a given incident list.
+     * Severities are compared by precedence.
+     * 
+     * @param updates The incident updates of a specific service.
+     * @return The highest severity in the list, UNKNOWN if it is empty.
+     */
+    public static Severity determineMostSevere(List<IncidentUpdate> updates) {
+        Severity highest = Severity.UNKNOWN;
+        for(int i = 0; i < updates.size(); i++) {
+            Severity severity = updates.get(i).getSeverity();
+            if(severity.isMoreSevereThan(highest)) {
+                highest = severity;
             }
         }
-        return highestSeverity;
+        return highest;
     }
     
     /**
@@ -0,0 +1,47 @@
+package ritopls;
+
+/**
+ * The state of a League of Legends service as reported by the API.
+ *
+ * @author Chris Meyers
+ */
+public enum Status {
+    ONLINE(StaticData.SERVICE_ONLINE),
+    OFFLINE(StaticData.SERVICE_OFFLINE),
+    ALERT(StaticData.SERVICE_ALERT),
+    DEPLOYING(StaticData.SERVICE_DEPLOYING),
+    UNKNOWN("Unknown");
+
+    // values() copies the array on every call.
+    private static final Status[] VALUES = values();
+
+    private final String displayName;
+
+    Status(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Gets the text shown in the status labels.
+     *
+     * @return The display name of this status.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Looks up a status by the value used in the API.
+     *
+     * @param raw The raw status value, in any case.
+     * @return The matching status, or UNKNOWN if there is none.
+     */
+    public static Status fromString(String raw) {
+        for(Status status : VALUES) {
+            if(status.displayName.equalsIgnoreCase(raw)) {
+                return status;
+            }
+        }
+        return UNKNOWN;
+    }
+}
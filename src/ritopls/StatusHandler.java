@@ -4,21 +4,47 @@ import java.awt.Color;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
-import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.JButton;
+import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 /**
- * Handles populating the GUI based on the parsed status data for the current region.
+ * Polls the current region and renders what is known about it.
+ * 
+ * The poll task only reads the AppStateStore and writes the latest status
+ * and incidents back to it.  The handler subscribes to the store, builds a
+ * ViewModel of every change off the EDT and hands it to a RenderPipeline,
+ * which draws the newest one in a single batch on the EDT.
+ * 
+ * The window is drawn from the state, not from the ChangeEvents of
+ * SnapshotDiff: render only touches the components whose value differs
+ * from the last view, so redraws still follow what changed.  The events
+ * decide whether a poll replaces the cached snapshot at all, and feed the
+ * tray notifications and the console log.
  * 
  * @author Chris Meyers
  */
-public class StatusHandler {
+public class StatusHandler implements AppStateStore.Listener {
     private final GUI gui;
-    private Thread pollThread, counterThread;
-    private final HashMap<String, ArrayList<HashMap<String, String>>> allIncidents;
+    private TaskScheduler.Task pollTask;
+    private TaskScheduler.Task countdownTask;
+    private TaskScheduler.Task watchTask;
+    private volatile MultiRegionSnapshot regionSnapshot;
+    private final RenderPipeline renderPipeline;
+    private volatile String polledRegion;
+    private volatile String waitingReason;
+    private ViewModel lastView; // EDT only
+    private final ConcurrentHashMap<String, IncidentStore> incidentStores = new ConcurrentHashMap<>();
+    private final Set<String> prefetching = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     
     /**
      * StatusHandler constructor.
@@ -28,329 +54,675 @@ public class StatusHandler {
      */
     public StatusHandler(GUI g) throws IOException {
         gui = g;
-        allIncidents = new HashMap();
+        renderPipeline = new RenderPipeline(new RenderPipeline.Renderer() {
+            @Override
+            public void render(ViewModel view) {
+                StatusHandler.this.render(view);
+            }
+        }, StaticData.RENDER_INTERVAL_MILLIS);
+        gui.getStore().subscribe(this);
+        bindIncidentButtons();
     }
     
     /**
      * Adjust values of server status labels when checking is enabled.
      */
     public void setTextWhenOn() {
+        lastView = null;
         gui.checkButtonTextOn();
+        startPolling();
+    }
+    
+    /**
+     * Schedules the poll and countdown tasks, polling right away.  Unless
+     * ritopls.watchAllRegions is turned off every other region is fetched
+     * alongside.
+     */
+    private synchronized void startPolling() {
+        final String region = gui.getStore().get().getRegion();
         
-        // Creates a second thread to periodically check for a change in server
-        // status.
+        // Periodically check for a change in server status.  Each task
+        // keeps its own last snapshot, so a cancelled task still finishing
+        // never shares state with the one replacing it.  It starts from
+        // the cached snapshot of the region, which is shown until the
+        // first poll revalidates it.
         Runnable poll = new Runnable() {
+            private Shard lastStatusInfo = gui.getStore().get().getStatus(region);
+            
             @Override
             public void run() {
-                synchronized(gui.getParser()) {
-                    HashMap<String, HashMap<String, ArrayList<HashMap<String, HashMap<String, String>>>>> statusInfo = new HashMap();
-
-                    while(gui.getJToggleButton(1).isSelected()) {
-                        try {
-                            gui.getParser().pollTest(gui.getPollingRate(), gui.getCurrentRegion());
-                            
-                            allIncidents.clear();
-                            
-                            // Set current status for each service.
-                            try {
-                                statusInfo = gui.getParser().getStatus(gui.getCurrentRegion());
-                            }
-                            catch(UnknownHostException e) {
-                                gui.setTextWhenOff();
-                                break;
-                            }
-                            
-                            setStatusStrings(statusInfo);
-                            
-                            /*
-                             * Case 1:
-                             *   - Set default text if incidents go away on refresh.
-                             * 
-                             * Case 2:
-                             *   - Set default text if incidents exist and jToggleButton1
-                             *     was toggled.
-                             * 
-                             * Case 3:
-                             *   - Set default text if incidents go away on refresh
-                             *     while the incidents for a selected service were being
-                             *     displayed.
-                             * 
-                             */
-                            if ((allIncidents.isEmpty()) ||                                            // Case 1
-                                (!allIncidents.isEmpty() && gui.getLastClicked() == null) ||           // Case 2
-                                (gui.getLastClicked() != null && !gui.getLastClicked().isEnabled())) { // Case 3
-                                
-                                gui.getJTextArea(1).setText(gui.setNewTextAreaMessage());
-                                gui.setLastClicked(null);
-                            }
-                            
-                            if(gui.hasRegionChanged()) {
-                                gui.getJTextArea(1).setText(gui.setNewTextAreaMessage());
-                                gui.setRegionChanged(false);
-                            }
-                            
-                            gui.setFormIcon();
-                            gui.setPingValue();
-                            if(gui.getNotifTray() != null) {
-                                //gui.getNotifTray().setVariableMenuItems(-1);
-                                gui.getNotifTray().getTrayIcon().setToolTip(gui.getCurrentRegion().toUpperCase() + " ping is " + gui.getParser().getPing());
-                            }
-                        } 
-                        catch (IOException | InterruptedException ex) {}
-
-                        System.out.println();
-                                                    
-                        try {
-                            Thread.sleep(gui.getPollingRate() * 1000);
-                            allIncidents.clear();
-                            gui.turnAllIncidentButtonsOff();
-                            
-                            if(gui.getParser().networkCheck(gui.getCurrentRegion())) {
-                                // Throws network errors (IOException from not 
-                                // being able to openStream()).
-                            }
-                        } catch (InterruptedException e) {
-                            System.out.println("**************THREAD \"" + Thread.currentThread().getName() + "\" HAS BEEN INTERRUPTED**************");
-                            try {
-                                gui.setTextWhenOff();
-                            } catch (IOException ex) {}
-                            
-                            if(gui.getJToggleButton(1).isSelected()) {
-                                gui.checkButtonTextOn();
-                            }
-                            gui.setFormIcon();
-                        } catch (IOException ex) {
-                            // Catches network errors from not being able to openStream().
-                            System.out.println(ex);
-                            gui.networkErrorFound();
-                        }
-                       
-                    }
+                if(gui.getStore().get().isPolling()) {
+                    lastStatusInfo = poll(region, lastStatusInfo);
+                    System.out.println();
                 }
-            }        
+            }
         };
-
-        pollThread = new Thread(poll, "Poll Thread");
-        pollThread.start();
+        
+        pollTask = gui.getPollScheduler().scheduleRepeating(poll, 0, new TaskScheduler.Interval() {
+            @Override
+            public long nextMillis() {
+                return gui.getPollingRate() * 1000L;
+            }
+        });
+        
+        // Counts down to the next poll on the polling info label (jLabel9).
+        countdownTask = gui.getPollScheduler().scheduleTick(new Runnable() {
+            @Override
+            public void run() {
+                requestRender();
+            }
+        }, 1000);
+        
+        if(StaticData.WATCH_ALL_REGIONS) {
+            watchOtherRegions(region);
+        }
     }
-
+    
     /**
-    * Set status strings on GUI and handles incidents.
-    * 
-    * @param statusInfo All parsed information.
-    * @throws InterruptedException
-    */
-    private void setStatusStrings(HashMap<String, HashMap<String, ArrayList<HashMap<String, HashMap<String, String>>>>> statusInfo) throws InterruptedException {
-        String serviceString = "", status = "", id = "", severity = "", updatedTime = "", contentString = "", area = "";
-        ArrayList<HashMap<String, String>> currentServiceIncList;
-        HashMap<String, String> currentInc = new HashMap();
-        ArrayList<String> severities = new ArrayList();
-        boolean newIncidentFound;
-
-        // Set polling rate info label
-        setPollingInfoLabel();
-
-        // Set status labels, color these labels and handle incidents.
-        for(int service = 0; service < gui.getStatusLabels().length; service++) {
-            serviceString = StaticData.getCurrentServiceName(service);
-            status = statusInfo.get(serviceString).keySet().toString();
-
-            gui.getStatusLabels()[service].setText(formatOutput(status));
-            gui.colorize(gui.getStatusLabels()[service]);
-
-            // Handle incidents.
-            if(!statusInfo.get(serviceString).get(formatOutput(status)).isEmpty()) {
-                for (int i = 0; i < statusInfo.get(serviceString).get(formatOutput(status)).size(); i++) {
-                    newIncidentFound = true;
-                    id = statusInfo.get(serviceString).get(formatOutput(status)).get(i).get(serviceString).get("id");
-                    severity = statusInfo.get(serviceString).get(formatOutput(status)).get(i).get(serviceString).get("severity");
-                    updatedTime = formatTime(statusInfo.get(serviceString).get(formatOutput(status)).get(i).get(serviceString).get("updated_at"));
-                    contentString = statusInfo.get(serviceString).get(formatOutput(status)).get(i).get(serviceString).get("content");
-                    area = "[" + gui.getCurrentRegion().toUpperCase() + " " + serviceString + "]";
-
-                    /*
-                     * If the incident list doesn't have an entry for the
-                     * current service, make a new ArrayList and add the
-                     * incident to that.  Otherwise, use the ArrayList
-                     * that already exists and append the new incident to
-                     * it.  Add the ArrayList to the incident HashMap.
-                     */
-                    if(allIncidents.get(serviceString) == null) {
-                        currentServiceIncList = new ArrayList();
-                    }
-                    else {
-                        currentServiceIncList = allIncidents.get(serviceString);
-
-                        for(HashMap<String, String> c : allIncidents.get(serviceString)) {
-                            // Filter new incidents by "id" field.
-                            if(c.get("id").equals(id)) {
-                                // The "id" already exists in the HashMap.
-                                newIncidentFound = false;
-                            }
-                        }
+     * Fetches every region but the current one in one concurrent cycle per
+     * interval, so all snapshots stay fresh and switching regions never
+     * waits on a request.  A failed region keeps its last snapshot.
+     * 
+     * @param current The region polled by the main poll task.
+     */
+    private void watchOtherRegions(String current) {
+        ArrayList<String> others = new ArrayList<>();
+        for(String r : StaticData.getRegions()) {
+            String region = StaticData.internRegion(r);
+            if(!region.equals(current)) {
+                others.add(region);
+            }
+        }
+        final String[] regions = others.toArray(new String[others.size()]);
+        
+        Runnable watch = new Runnable() {
+            private final HashMap<String, Shard> lastStatuses = new HashMap<>();
+            
+            @Override
+            public void run() {
+                if(!gui.getStore().get().isPolling()) {
+                    return;
+                }
+                
+                MultiRegionSnapshot snapshot;
+                try {
+                    snapshot = gui.getRegionFetcher().fetchAll(regions);
+                }
+                catch(InterruptedException e) {
+                    // Polling was stopped or the region changed.
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                regionSnapshot = snapshot;
+                gui.getParser().getPollStats().cycleCompleted(snapshot.getRequests());
+                
+                for(Map.Entry<String, FetchResult> entry : snapshot.getResults().entrySet()) {
+                    String region = entry.getKey();
+                    FetchResult result = entry.getValue();
+                    if(!result.hasShard()) {
+                        System.out.println("[" + StaticData.displayRegion(region) + "] " + result);
+                        continue;
                     }
-
-                    if(newIncidentFound) {
-                        currentInc.put("id", id);
-                        currentInc.put("area", area);
-                        currentInc.put("severity", severity);
-                        currentInc.put("updatedTime", updatedTime);
-                        currentInc.put("contentString", contentString);
-
-                        currentServiceIncList.add((HashMap)currentInc.clone());
-                        currentInc.clear();
-                        allIncidents.put(serviceString, currentServiceIncList);
+                    
+                    Shard previous = lastStatuses.containsKey(region) ? lastStatuses.get(region)
+                                                                      : gui.getStore().get().getStatus(region);
+                    publish(region, previous, result.getShard(), previous != null);
+                    lastStatuses.put(region, result.getShard());
+                    if(gui.getStore().get().isAdaptive()) {
+                        gui.getPollingPolicy().nextInterval(region, result.getShard());
                     }
-
-                    severities.add(severity);
-                    populateIncidentBox(service, serviceString);
-
-                    System.out.println(area + " :: " + severity + " :: "+ updatedTime + " :: " + contentString);
                 }
-                populateIncidentButton(service, severities);
-                severities.clear();
+                System.out.println("Fetched " + regions.length + " regions in " + snapshot.getElapsedMillis() + "ms");
             }
-        }
-    }  
-
+        };
+        
+        watchTask = gui.getPollScheduler().scheduleRepeating(watch, 0, new TaskScheduler.Interval() {
+            @Override
+            public long nextMillis() {
+                // Often enough for the region that needs it most.
+                long millis = Long.MAX_VALUE;
+                for(String region : regions) {
+                    millis = Math.min(millis, gui.getPollingRate(region) * 1000L);
+                }
+                return millis;
+            }
+        });
+    }
+    
     /**
-     * Updates incident buttons based on severity.
+     * Gets the combined snapshot of the last cycle over every other region.
      * 
-     * @param service The current service that has an incident.
-     * @param severities The severities of the current service's incidents.
+     * @return The snapshot, or null if no cycle has finished yet.
      */
-    private void populateIncidentButton(int service, ArrayList<String> severities) {
-        final JButton button = gui.getIncidentButtons()[service];
-        button.setEnabled(true);
-
-        String severity = StaticData.determineMostSevere(severities);
-
-        switch(severity) {
-            case StaticData.INFO_STRING:
-                button.setForeground(Color.black);
-                button.setText(StaticData.INFO_SYMBOL);
-                break;
-
-            case StaticData.WARN_STRING:
-                button.setForeground(Color.black);
-                button.setText(StaticData.WARN_SYMBOL);
-                break;
-
-            case StaticData.ALERT_STRING:
-                button.setForeground(Color.black);
-                button.setText(StaticData.ALERT_SYMBOL);
-                break;
-
-            case StaticData.ERROR_STRING:
-                button.setForeground(Color.black);
-                button.setText(StaticData.ERROR_SYMBOL);
-                break;
-
-            default:
-                button.setForeground(Color.black);
-                button.setText(StaticData.WTF_SYMBOL);
-                break;
+    protected MultiRegionSnapshot getRegionSnapshot() {
+        return regionSnapshot;
+    }
+    
+    /**
+     * Runs a single poll cycle for a region.
+     * 
+     * @param region The region to poll.
+     * @param lastStatusInfo The snapshot stored after the previous cycle, may be null.
+     * @return The snapshot stored after this cycle, may be null.
+     */
+    private Shard poll(final String region, Shard lastStatusInfo) {
+        gui.getParser().pollTest(gui.getPollingRate(), region);
+        
+        // Set current status for each service.  This is the
+        // only upstream request of the cycle; its outcome also
+        // decides the state of the region's network.
+        FetchResult result = gui.getParser().fetch(region);
+        gui.getParser().getPollStats().cycleCompleted(result.getRequests());
+        System.out.println(result);
+        
+        if(result.getOutcome() == FetchResult.Outcome.INTERRUPTED) {
+            // Polling was stopped or the region changed; the task that
+            // replaces this one starts from the cached snapshot.
+            return null;
         }
+        
+        final Shard statusInfo;
+        if(result.hasShard()) {
+            statusInfo = result.getShard();
+            waitingReason = null;
+        }
+        else if(result.getOutcome() != FetchResult.Outcome.NETWORK_ERROR) {
+            // A slow, throttled or failed request is retried next cycle.
+            // Until then the last snapshot stays on screen, or the region
+            // is shown as waiting if there is none yet.
+            if(lastStatusInfo == null) {
+                waitingReason = getWaitingReason(result.getOutcome());
+                requestRender();
+                return null;
+            }
+            statusInfo = lastStatusInfo;
+        }
+        else {
+            cancelTasks();
+            gui.getStore().update(new AppStateStore.Updater() {
+                @Override
+                public AppState apply(AppState current) {
+                    return current.withNetworkError();
+                }
+            });
+            return null;
+        }
+        
+        if(result.hasShard()) {
+            polledRegion = region;
+            publish(region, lastStatusInfo, statusInfo, lastStatusInfo != null);
+        }
+        
+        if(gui.getStore().get().isAdaptive()) {
+            gui.getPollingPolicy().nextInterval(region, statusInfo);
+        }
+        
+        return statusInfo;
     }
-
+    
     /**
-     * Updates the incident output box (jTextArea1).
+     * Publishes a newly fetched snapshot of a region to the store.  Only a
+     * snapshot that says something new replaces the cached one: the parser
+     * hands back the same snapshot when the body didn't change, and a
+     * changed body may still hold the same statuses and incidents.  Either
+     * way the cached snapshot is marked as confirmed now.
      * 
-     * @param service The current service that has an incident.
-     * @param serviceString A string of the incident.
+     * @param region The region that was fetched.
+     * @param previous The snapshot to compare against, may be null.
+     * @param statusInfo The new snapshot.
+     * @param notify True to tell the tray about the changes.
      */
-    private void populateIncidentBox(int service, String serviceString) {
-        final JButton button = gui.getIncidentButtons()[service];
-        button.setEnabled(true);
-
-        final String currentService = serviceString;
-
-        if(gui.getLastClicked() == button) {
-            handleTextArea(currentService);
+    private void publish(final String region, Shard previous, final Shard statusInfo, boolean notify) {
+        final long now = System.currentTimeMillis();
+        final List<ChangeEvent> changes = SnapshotDiff.diff(region, previous, statusInfo);
+        if(changes.isEmpty() && gui.getStore().get().getSnapshot(region) != null) {
+            gui.getStore().update(new AppStateStore.Updater() {
+                @Override
+                public AppState apply(AppState current) {
+                    return current.withConfirmed(region, now);
+                }
+            });
+            return;
         }
-
-        button.addActionListener(new ActionListener() {
+        
+        for(ChangeEvent change : changes) {
+            System.out.println(change);
+        }
+        if(notify && !changes.isEmpty() && gui.getNotifTray() != null) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    gui.getNotifTray().showChanges(changes);
+                }
+            });
+        }
+        
+        final RegionSnapshot snapshot = new RegionSnapshot(statusInfo, collectIncidents(region, statusInfo), now);
+        gui.getStore().update(new AppStateStore.Updater() {
             @Override
-            public void actionPerformed(ActionEvent e) {
-                handleTextArea(currentService);
-                gui.setLastClicked(button);
+            public AppState apply(AppState current) {
+                return current.withSnapshot(region, snapshot);
             }
         });
+        
+        // The poll task and a prefetch can both get here.  Reading the
+        // state under the lock keeps an older one from being written last.
+        SnapshotStore snapshotStore = gui.getSnapshotStore();
+        synchronized(snapshotStore) {
+            snapshotStore.save(gui.getStore().get().getSnapshots());
+        }
     }
-
+    
     /**
-     * Prints data to jTextArea1.
+     * Puts the snapshots saved by the last run into the state, so the
+     * window can show them before anything has been fetched.  Their
+     * incidents are rebuilt from the saved status.
      * 
-     * @param currentService The current service to output.
+     * @param saved Snapshots keyed by lower case region, without incidents.
      */
-    private void handleTextArea(String currentService) {
-        gui.getJTextArea(1).setForeground(Color.black);
-        gui.getJTextArea(1).setText("");
-        for(int i = 0; i < allIncidents.get(currentService).size(); i++) {
-            gui.getJTextArea(1).append(allIncidents.get(currentService).get(i).get("area") + " :: ");
-            gui.getJTextArea(1).append(allIncidents.get(currentService).get(i).get("severity") + " :: ");
-            gui.getJTextArea(1).append(allIncidents.get(currentService).get(i).get("updatedTime") + " :: ");
-            gui.getJTextArea(1).append(allIncidents.get(currentService).get(i).get("contentString"));
-
-            if(i != allIncidents.get(currentService).size()-1) {
-                gui.getJTextArea(1).append("\n\n");
-            }
-
-            // "Scroll" to top of jTextBox1
-            gui.getJTextArea(1).setCaretPosition(0);
+    protected void restoreSnapshots(Map<String, RegionSnapshot> saved) {
+        for(Map.Entry<String, RegionSnapshot> entry : saved.entrySet()) {
+            final String region = entry.getKey();
+            Shard statusInfo = entry.getValue().getStatus();
+            final RegionSnapshot snapshot = new RegionSnapshot(statusInfo, collectIncidents(region, statusInfo),
+                                                               entry.getValue().getFetchedAt());
+            gui.getStore().update(new AppStateStore.Updater() {
+                @Override
+                public AppState apply(AppState current) {
+                    // Never replace a snapshot fetched in the meantime.
+                    return current.getSnapshot(region) != null ? current : current.withSnapshot(region, snapshot);
+                }
+            });
         }
     }
-
+    
     /**
-     * Sets the value of the polling info label (jLabel9) based on the 
-     * current polling rate.
+     * Fetches a region in the background so its snapshot is fresh if the
+     * user switches to it, e.g. while it is highlighted in the region
+     * list.  Does nothing when not polling, for the current region, for a
+     * region with a recent snapshot or one already being prefetched.
      * 
-     * @throws InterruptedException
+     * @param r The region to prefetch.
      */
-    private void setPollingInfoLabel() throws InterruptedException {
-        Runnable countdown = new Runnable() {
+    protected void prefetch(String r) {
+        final String region = StaticData.internRegion(r);
+        AppState state = gui.getStore().get();
+        RegionSnapshot snapshot = state.getSnapshot(region);
+        
+        if(!state.isPolling() || region.equals(state.getRegion()) ||
+           (snapshot != null && snapshot.getAgeMillis() < StaticData.PREFETCH_MAX_AGE_SECONDS * 1000L) ||
+           !prefetching.add(region)) {
+            return;
+        }
+        
+        gui.getPollScheduler().execute(new Runnable() {
             @Override
             public void run() {
-                for(int i = gui.getPollingRate(); i > -1; i--) {
-                    if(gui.getJToggleButton(1).isSelected()) {
-                        if(i == 1) {
-                            gui.getJLabel(9).setText("Refreshing " + gui.getCurrentRegion().toUpperCase() + " in " + i + " second...");
-                        }
-                        else {
-                            gui.getJLabel(9).setText("Refreshing " + gui.getCurrentRegion().toUpperCase() + " in " + i + " seconds...");
-                        }
-                        gui.getJLabel(9).setHorizontalAlignment(SwingConstants.CENTER);
-                        
-                        //if(gui.getNotifTray() != null) {
-                        //    gui.getNotifTray().setVariableMenuItems(i);
-                        //}
- 
-                        try {
-                            Thread.sleep(1000);
-                        } catch (InterruptedException ex) {
-                            System.out.println("**************THREAD \"" + Thread.currentThread().getName() + "\" HAS BEEN INTERRUPTED**************");
-                            break;
-                        }
+                try {
+                    FetchResult result = gui.getParser().fetch(region);
+                    System.out.println("Prefetch " + result);
+                    if(result.hasShard()) {
+                        publish(region, gui.getStore().get().getStatus(region), result.getShard(), false);
                     }
                 }
+                finally {
+                    prefetching.remove(region);
+                }
             }
-        };
- 
-        counterThread = new Thread(countdown, "Counter Thread");
-        counterThread.start();
+        });
+    }
+    
+    /**
+     * Adds the incident updates of every service to the region's
+     * IncidentStore, which drops updates whose "id" was already seen.
+     * 
+     * @param region The region the status belongs to.
+     * @param statusInfo All parsed information.
+     * @return Incident updates keyed by service name, newest first.
+     */
+    private Map<String, List<IncidentUpdate>> collectIncidents(String region, Shard statusInfo) {
+        IncidentStore store = incidentStores.get(region);
+        if(store == null) {
+            IncidentStore created = new IncidentStore(StaticData.INCIDENT_STORE_SIZE, StaticData.INCIDENT_MAX_AGE_HOURS * 3600000L);
+            store = incidentStores.putIfAbsent(region, created);
+            if(store == null) {
+                store = created;
+            }
+        }
+        return store.update(statusInfo);
+    }
+    
+    /**
+     * Builds a short report of the incident stores for the diagnostics
+     * window.
+     * 
+     * @return A multi-line report.
+     */
+    protected String getIncidentReport() {
+        StringBuilder report = new StringBuilder();
+        for(Map.Entry<String, IncidentStore> e : incidentStores.entrySet()) {
+            report.append(e.getKey()).append(": ").append(e.getValue().getReport()).append('\n');
+        }
+        return report.toString();
+    }
+    
+    /**
+     * Redraws whatever a change of the AppState affects.  Called on the
+     * thread that changed the store.
+     * 
+     * @param previous The state before the change.
+     * @param current The state after the change.
+     */
+    @Override
+    public void stateChanged(final AppState previous, final AppState current) {
+        if(current.isAdaptive() != previous.isAdaptive() || current.getPollingRate() != previous.getPollingRate()) {
+            pollingRateChanged();
+        }
+        
+        if(current.hasNetworkError() && !previous.hasNetworkError()) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    gui.networkErrorFound();
+                }
+            });
+            return;
+        }
+        
+        requestRender();
+    }
+    
+    /**
+     * Builds a view model of the current state and queues it for drawing.
+     * Safe to call from any thread; does nothing when not polling.
+     */
+    protected void requestRender() {
+        ViewModel view = buildViewModel(gui.getStore().get());
+        if(view != null) {
+            renderPipeline.submit(view);
+        }
+    }
+    
+    /**
+     * Works out everything the window shows for a state.  Runs off the EDT
+     * and touches no Swing component.
+     * 
+     * @param state The state to show.
+     * @return The view model, or null if not polling.
+     */
+    private ViewModel buildViewModel(AppState state) {
+        if(!state.isPolling()) {
+            return null;
+        }
+        
+        String region = state.getRegion();
+        int services = gui.getStatusLabels().length;
+        
+        // A region that hasn't been polled since it was selected shows its
+        // cached snapshot, marked with its age, until the poll is done.
+        Shard statusInfo = state.getCurrentStatus();
+        RegionSnapshot cached = region.equals(polledRegion) ? null : state.getSnapshot(region);
+        String[] statusTexts = null;
+        Color[] statusColors = null;
+        String[] buttonTexts = new String[services];
+        
+        if(statusInfo != null) {
+            statusTexts = new String[services];
+            statusColors = new Color[services];
+            for(int service = 0; service < services; service++) {
+                String serviceString = StaticData.getCurrentServiceName(service);
+                Service currentService = statusInfo.getService(serviceString);
+                if(currentService == null) {
+                    continue;
+                }
+                
+                statusTexts[service] = currentService.getStatus().getDisplayName();
+                statusColors[service] = GUI.getStatusColor(statusTexts[service]);
+                
+                List<IncidentUpdate> updates = state.getIncidents().get(serviceString);
+                if(updates != null) {
+                    buttonTexts[service] = StaticData.determineMostSevere(updates).getSymbol();
+                }
+            }
+        }
+        
+        // Show the incidents of the selected service, or the default
+        // text if none is selected or its incidents went away.
+        String selected = state.getSelectedService();
+        String text;
+        if(selected != null && state.getIncidents().containsKey(selected)) {
+            text = formatIncidents(region, selected, state.getIncidents().get(selected));
+        }
+        else if(!state.getIncidents().isEmpty()) {
+            text = StaticData.INCIDENTS_AVAILABLE;
+        }
+        else {
+            text = StaticData.NO_INCIDENTS_AVAILABLE;
+        }
+        
+        LatencyMonitor monitor = gui.getLatencyMonitor();
+        return new ViewModel(state, statusTexts, statusColors, buttonTexts, text, Color.black,
+                             GUI.getFormIconName(state),
+                             StaticData.displayRegion(region) + " ping is ", monitor.getDisplayValue(region), gui.getPingColor(region),
+                             getInfoText(region, statusInfo, cached),
+                             monitor.getSummary(region));
+    }
+    
+    /**
+     * Applies a view model to the window.  Called on the EDT by the
+     * RenderPipeline; components are only touched when their value changed
+     * since the last view.
+     * 
+     * @param view The view model to draw.
+     */
+    private void render(ViewModel view) {
+        AppState latest = gui.getStore().get();
+        if(!latest.isPolling() || !latest.getRegion().equals(view.getState().getRegion())) {
+            // Polling stopped or the region changed since this was built.
+            return;
+        }
+        
+        ViewModel last = lastView;
+        if(view.hasStatus()) {
+            for(int service = 0; service < gui.getStatusLabels().length; service++) {
+                if(last != null && last.hasStatus() &&
+                   Objects.equals(view.getStatusText(service), last.getStatusText(service)) &&
+                   Objects.equals(view.getButtonText(service), last.getButtonText(service))) {
+                    // Nothing changed for this service.
+                    continue;
+                }
+                
+                if(view.getStatusText(service) != null) {
+                    gui.getStatusLabels()[service].setText(view.getStatusText(service));
+                    gui.getStatusLabels()[service].setForeground(view.getStatusColor(service));
+                }
+                
+                JButton button = gui.getIncidentButtons()[service];
+                String symbol = view.getButtonText(service);
+                if(symbol == null) {
+                    button.setEnabled(false);
+                    button.setText(StaticData.POLLING_OFF_MSG);
+                    button.setBackground(null);
+                }
+                else {
+                    button.setEnabled(true);
+                    button.setForeground(Color.black);
+                    button.setText(symbol);
+                }
+            }
+        }
+        
+        // Rewriting the incident box resets its scroll position, so only
+        // do it when the text changed.
+        JTextArea area = gui.getJTextArea(1);
+        if(!area.getText().equals(view.getTextAreaText()) || !area.getForeground().equals(view.getTextAreaColor())) {
+            area.setForeground(view.getTextAreaColor());
+            area.setText(view.getTextAreaText());
+            area.setCaretPosition(0);
+        }
+        
+        if(last == null || !view.getIconName().equals(last.getIconName())) {
+            gui.setFormIcon(view.getIconName());
+        }
+        
+        gui.getJLabel(11).setText(view.getPingPrefix());
+        gui.getJLabel(12).setText(view.getPingText());
+        gui.getJLabel(12).setForeground(view.getPingColor());
+        
+        if(view.getCountdownText() != null) {
+            gui.getJLabel(9).setText(view.getCountdownText());
+            gui.getJLabel(9).setHorizontalAlignment(SwingConstants.CENTER);
+        }
+        
+        if(gui.getNotifTray() != null && (last == null || !view.getToolTip().equals(last.getToolTip()))) {
+            //gui.getNotifTray().setVariableMenuItems(-1);
+            gui.getNotifTray().getTrayIcon().setToolTip(view.getToolTip());
+        }
+        
+        lastView = view;
+    }
+
+    /**
+     * Gives every incident button its one ActionListener.  The listener
+     * looks the service up when clicked and only selects it if the latest
+     * snapshot has incidents for it.
+     */
+    private void bindIncidentButtons() {
+        for(int service = 0; service < gui.getIncidentButtons().length; service++) {
+            final String serviceString = StaticData.getCurrentServiceName(service);
+            
+            gui.getEventBindings().bind(gui.getIncidentButtons()[service], new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    gui.getStore().update(new AppStateStore.Updater() {
+                        @Override
+                        public AppState apply(AppState current) {
+                            if(!current.getIncidents().containsKey(serviceString)) {
+                                return current;
+                            }
+                            return current.withSelectedService(serviceString);
+                        }
+                    });
+                }
+            });
+        }
     }
 
     /**
-     * Removes brackets from the status obtained in the HashMap keySet.
+     * Builds the text of jTextArea1 for the incidents of a service.
+     * 
+     * @param region The region the incidents belong to.
+     * @param currentService The current service to output.
+     * @param updates The incidents of the service.
+     * @return The text of the incident box.
+     */
+    private String formatIncidents(String region, String currentService, List<IncidentUpdate> updates) {
+        StringBuilder text = new StringBuilder();
+        String area = formatArea(region, currentService);
+
+        for(int i = 0; i < updates.size(); i++) {
+            text.append(area).append(" :: ");
+            text.append(updates.get(i).getSeverity().getDisplayName()).append(" :: ");
+            text.append(formatTime(updates.get(i).getUpdatedAt())).append(" :: ");
+            text.append(updates.get(i).getContent());
+
+            if(i != updates.size()-1) {
+                text.append("\n\n");
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Gets the text of the polling info label (jLabel9) based on the 
+     * time left until the next poll.
+     * 
+     * @param region The region being polled.
+     * @return The polling info text, or null if no poll is scheduled.
+     */
+    private String getPollingInfoText(String region) {
+        TaskScheduler.Task task = pollTask;
+        if(task == null) {
+            return null;
+        }
+        
+        long i = (task.getDelayMillis() + 999) / 1000;
+        if(i == 1) {
+            return "Refreshing " + StaticData.displayRegion(region) + " in " + i + " second...";
+        }
+        return "Refreshing " + StaticData.displayRegion(region) + " in " + i + " seconds...";
+    }
+
+    /**
+     * Gets the text of the polling info label (jLabel9).
+     * 
+     * @param region The region being polled.
+     * @param statusInfo The status shown, may be null.
+     * @param cached The cached snapshot shown until the region is polled, may be null.
+     * @return The polling info text, or null if no poll is scheduled.
+     */
+    private String getInfoText(String region, Shard statusInfo, RegionSnapshot cached) {
+        String reason = waitingReason;
+        if(statusInfo == null && reason != null) {
+            return getWaitingInfoText(region, reason);
+        }
+        return cached == null ? getPollingInfoText(region) : getCachedInfoText(region, cached);
+    }
+    
+    /**
+     * Gets the text of the polling info label (jLabel9) while no snapshot
+     * of the region could be fetched yet.
+     * 
+     * @param region The region being polled.
+     * @param reason Why the last poll failed.
+     * @return The polling info text.
+     */
+    private String getWaitingInfoText(String region, String reason) {
+        TaskScheduler.Task task = pollTask;
+        long i = task == null ? 0 : (task.getDelayMillis() + 999) / 1000;
+        return "Waiting for " + StaticData.displayRegion(region) + " (" + reason + "), retrying in " + i + "s...";
+    }
+    
+    /**
+     * Describes a failed poll that is retried rather than stopping polling.
+     * 
+     * @param outcome How the poll ended.
+     * @return A short description.
+     */
+    private static String getWaitingReason(FetchResult.Outcome outcome) {
+        switch(outcome) {
+            case RATE_LIMITED:
+                return "rate limited";
+            case TIMEOUT:
+                return "timed out";
+            case PARSE_ERROR:
+                return "bad response";
+            default:
+                return "server error";
+        }
+    }
+    
+    /**
+     * Gets the text of the polling info label (jLabel9) while a cached
+     * snapshot is being revalidated.
      * 
-     * @param raw The raw status string that was parsed.
-     * @return A formatted status string.
+     * @param region The region being polled.
+     * @param cached The cached snapshot shown.
+     * @return The polling info text.
      */
-    private String formatOutput(String raw) {
-        // Remove brackets
-        String formatted = raw.replaceAll("[\\[\\]]", "");
+    private String getCachedInfoText(String region, RegionSnapshot cached) {
+        return "Showing " + StaticData.displayRegion(region) + " from " + cached.getAgeText() + " ago, refreshing...";
+    }
 
-        return formatted;
+    /**
+     * Builds the "[REGION Service]" tag shown in front of each incident.
+     * 
+     * @param region The region the incident belongs to.
+     * @param serviceString The service the incident belongs to.
+     * @return The area tag.
+     */
+    private String formatArea(String region, String serviceString) {
+        return "[" + StaticData.displayRegion(region) + " " + serviceString + "]";
     }
 
     /**
@@ -367,25 +739,84 @@ public class StatusHandler {
     }
             
     /**
-     * Interrupt all non-main threads.
+     * Cancels the poll, countdown and all-regions tasks.  A poll in progress is
+     * interrupted.
      */
-    protected void interruptThreads() {
-        if(pollThread != null) {
-            pollThread.interrupt();
+    private synchronized void cancelTasks() {
+        polledRegion = null;
+        waitingReason = null;
+        if(pollTask != null) {
+            pollTask.cancel();
+            pollTask = null;
         }
         
-        if(counterThread != null) {
-            counterThread.interrupt();
+        if(countdownTask != null) {
+            countdownTask.cancel();
+            countdownTask = null;
         }
+        
+        if(watchTask != null) {
+            watchTask.cancel();
+            watchTask = null;
+        }
+    }
+    
+    /**
+     * Stops polling and resets the labels.
+     */
+    protected void stopPolling() {
+        cancelTasks();
+        lastView = null;
+        resetLabels();
     }
     
     /**
-     * Gets an incident map for the current region.
+     * Resets the labels and starts polling again from scratch, e.g. after
+     * the region changed.
+     */
+    protected void restartPolling() {
+        cancelTasks();
+        lastView = null;
+        resetLabels();
+        
+        if(gui.getStore().get().isPolling()) {
+            startPolling();
+        }
+    }
+    
+    /**
+     * Re-times the next poll after the polling rate changed.
+     */
+    private synchronized void pollingRateChanged() {
+        if(pollTask != null) {
+            pollTask.reschedule();
+        }
+        if(watchTask != null) {
+            watchTask.reschedule();
+        }
+    }
+    
+    /**
+     * Gets the pipeline that draws the view models.
      * 
-     * @return HashMap of incidents for current region.
+     * @return the RenderPipeline object
+     */
+    protected RenderPipeline getRenderPipeline() {
+        return renderPipeline;
+    }
+    
+    /**
+     * Puts the labels back in their "Off" state until the next poll.
      */
-    protected HashMap<String, ArrayList<HashMap<String, String>>> getAllIncidents() {
-        return allIncidents;
+    private void resetLabels() {
+        try {
+            gui.setTextWhenOff();
+        } catch (IOException ex) {}
+        
+        if(gui.getStore().get().isPolling()) {
+            gui.checkButtonTextOn();
+        }
+        gui.setFormIcon();
     }
     
 }
@@ -1,106 +1,150 @@
 package ritopls;
 
-import com.google.gson.*;
-
 import java.io.*;
+import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.net.URLConnection;
-import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class parses the current League of Legends service status data for a 
  * region specified by the user.
  * 
+ * A parser may be used for several regions at once from different threads.
+ * Parsing itself keeps no state; everything that outlives a request is kept
+ * per region in a FetchContext and published through it atomically.
+ * 
  * @author Chris Meyers
  */
 public class StatusParser {
-    private String baseURL;
-    private boolean networkOK;
-    String ping;
+    private volatile File debugFile;
+    private volatile boolean debug;
+    private final ConcurrentHashMap<String, FetchContext> fetchContexts = new ConcurrentHashMap<>();
+    private final RequestScheduler scheduler = new RequestScheduler();
+    private final PollStats pollStats = new PollStats();
+    private final RequestExecutor requestExecutor;
+    private final SingleFlight<String, FetchResult> singleFlight = new SingleFlight<>();
     
-    private static boolean DEBUG = false;
-    private static File DEBUG_FILE = resources.ResourceLoader.getFile("json/offline.json");
+    private static final int MAX_RATE_LIMITED_ATTEMPTS = 3;
+    private static final int DRAIN_BUFFER_SIZE = 512;
     
     /**
-     * Constructor for the Parser class.
+     * Constructor for the Parser class.  Nothing is fetched until the
+     * first poll of each region, which also decides the state of its network.
      * 
-     * @param region The region selected by the user.
      * @throws IOException 
      */
-    public StatusParser(String region) throws IOException {
-        baseURL = StaticData.buildURL(region);
-        
-        try {
-            getUrlData();
-            networkOK = true;
-        }
-        catch(UnknownHostException e) {
-            networkOK = false;
-        }
+    public StatusParser() throws IOException {
+        this(ExecutionMode.current());
     }
     
     /**
-     * Gets server status data in JSON format from the League of Legends API.
+     * Constructor for the Parser class.
      * 
-     * @return The JSON obtained from the League of Legends API.
+     * @param mode Decides the kind of threads requests run on.
      * @throws IOException 
      */
-    public final String getUrlData() throws IOException {
-        if(DEBUG) {
-            // TODO: this is throwing an exception...
-            InputStream fileStream = new FileInputStream(DEBUG_FILE);
-
-            String line;
-            String contents = "";
-            while((line = new BufferedReader(new InputStreamReader(fileStream)).readLine()) != null) {
-                System.out.println(line);
-                contents += line;
-            }
+    public StatusParser(ExecutionMode mode) throws IOException {
+        debugFile = resources.ResourceLoader.getFile("json/offline.json");
+        requestExecutor = new RequestExecutor(mode);
+    }
 
-            System.out.println(contents);
+    /**
+     * Makes an API call once the request scheduler allows it, and feeds the
+     * rate limit headers of the response back to the scheduler.  The call
+     * is bounded by the request deadline and may be hedged.
+     *
+     * @param <T> The type the body is read into.
+     * @param region The region to query.
+     * @param headers The request headers, including the API key.
+     * @param reader Reads the response body.
+     * @param sent Counts the requests sent, hedges included.
+     * @return The API response, which may be a 429.
+     * @throws IOException
+     */
+    private <T> ApiResponse<T> scheduledGet(final String region, final HashMap<String, String> headers, final ApiClient.BodyReader<T> reader,
+                                            final AtomicInteger sent) throws IOException {
+        final String key = headers.get("X-Riot-Token");
 
-            return contents;
+        try {
+            scheduler.acquire(key, region);
         }
-        else {
-            try {
-                return getServerStatusData();
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to query " + region);
+        }
+
+        final String url = StaticData.buildURL(region);
+        Callable<ApiResponse<T>> request = new Callable<ApiResponse<T>>() {
+            @Override
+            public ApiResponse<T> call() throws IOException {
+                pollStats.requestSent();
+                sent.incrementAndGet();
+                return ApiClient.getInstance().get(url, headers, reader);
             }
-            catch (IOException e) {
-                System.out.println(e);
+        };
+        RequestExecutor.HedgeGate gate = new RequestExecutor.HedgeGate() {
+            @Override
+            public boolean allowHedge() {
+                return scheduler.tryAcquire(key, region);
             }
-        }
+        };
 
-        return null;
+        ApiResponse<T> response = requestExecutor.execute(request, StaticData.REQUEST_DEADLINE_MILLIS, getHedgeDelay(url), gate);
+        scheduler.update(key, region, response);
+
+        return response;
     }
 
     /**
-     * Makes an API call to retrieve server status data.
+     * Works out how long to wait before hedging a request to a URL.
      *
-     * @return Server status data as a JSON string.
+     * @param url The URL being requested.
+     * @return The hedge delay in millis, or 0 to not hedge.
      * @throws IOException
      */
-    private String getServerStatusData() throws IOException {
-        File keyFile = resources.ResourceLoader.getFile("key.txt");
-        String key = new Scanner(keyFile).nextLine();
-
-        URLConnection conn = new URL(baseURL).openConnection();
-        conn.setDoOutput(true);
-        conn.setRequestProperty("X-Riot-Token", key);
+    private long getHedgeDelay(String url) throws IOException {
+        if(!StaticData.HEDGE_REQUESTS) {
+            return 0;
+        }
 
-        try(BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
-            String line = in.readLine();
-            in.close();
-            return line.replace("\\r\\n", "");
+        long percentile = ApiClient.getInstance().getLatencyPercentile(new URL(url).getHost(), StaticData.HEDGE_PERCENTILE);
+        if(percentile < 0) {
+            // Not enough samples yet to know what slow looks like.
+            return 0;
         }
-        catch(UnknownHostException e) {
-            System.out.println(e);
-            throw e;
+
+        return Math.max(StaticData.MIN_HEDGE_DELAY_MILLIS, percentile);
+    }
+
+    /**
+     * Builds the request headers for an API call.  The validators of the
+     * given context, if any, are added so the server can answer 304 when
+     * nothing has changed.
+     *
+     * @param context The fetch context of the region, may be null.
+     * @return The request headers.
+     * @throws IOException
+     */
+    private HashMap<String, String> buildHeaders(FetchContext context) throws IOException {
+        HashMap<String, String> headers = new HashMap<>();
+        headers.put("X-Riot-Token", ApiKeyProvider.getInstance().getKey());
+
+        if(context != null && context.getStatus() != null) {
+            if(context.getETag() != null) {
+                headers.put("If-None-Match", context.getETag());
+            }
+            if(context.getLastModified() != null) {
+                headers.put("If-Modified-Since", context.getLastModified());
+            }
         }
+
+        return headers;
     }
 
     /**
@@ -116,141 +160,239 @@ public class StatusParser {
     }
     
     /**
-     * Parses the JSON that was obtained from the League of Legends API.  Google's
-     * Gson is used as the parsing utility.
+     * Polls a region and reports how it went.  Failures are reported in the
+     * returned outcome instead of being thrown.
+     * 
+     * Callers asking for a region that is already being fetched share that
+     * request and its result.  The callers are the poll task of the current
+     * region, the poll loops of the other regions when every region is
+     * watched, and the prefetch of a region highlighted in the list.  A shared
+     * request that was interrupted because its caller was cancelled is
+     * retried for the callers that weren't.
      * 
      * @param region The region selected by the user.
-     * @return The status of the specified service in the specified region.
-     * @throws IOException 
+     * @return The outcome of the poll, with the snapshot to show if there is one.
      */
-    public HashMap<String, HashMap<String, ArrayList<HashMap<String, HashMap<String, String>>>>> getStatus(String region) throws IOException {
-        String currentData;
-
+    public FetchResult fetch(final String region) {
+        while(true) {
+            SingleFlight.Result<FetchResult> result;
+            try {
+                result = singleFlight.execute(StaticData.internRegion(region), new SingleFlight.Call<FetchResult>() {
+                    @Override
+                    public FetchResult call() {
+                        return fetchNow(region);
+                    }
+                });
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new FetchResult(FetchResult.Outcome.INTERRUPTED, null, new InterruptedIOException(), 0);
+            }
+            
+            if(!result.isShared()) {
+                return result.getValue();
+            }
+            if(result.getValue().getOutcome() == FetchResult.Outcome.INTERRUPTED && !Thread.currentThread().isInterrupted()) {
+                continue;
+            }
+            // The requests were made, and counted, by the caller that ran it.
+            return result.getValue().shared();
+        }
+    }
+    
+    /**
+     * Polls a region right away, without sharing the request.
+     * 
+     * @param region The region selected by the user.
+     * @return The outcome of the poll, with the snapshot to show if there is one.
+     */
+    private FetchResult fetchNow(String region) {
+        long start = System.currentTimeMillis();
+        FetchResult.Outcome outcome;
+        Shard statusInfo = null;
+        IOException error = null;
+        AtomicInteger sent = new AtomicInteger();
+        FetchContext context = getFetchContext(region);
+        
         try {
-            baseURL = StaticData.buildURL(region);
-            currentData = getUrlData();
-            networkOK = true;
+            FetchResult result = readStatus(region, context, sent);
+            outcome = result.getOutcome();
+            statusInfo = result.getShard();
+            error = result.getError();
         }
-        catch(UnknownHostException e) {
-            currentData = "";
-            networkOK = false;
-            throw e;
+        catch(SocketTimeoutException e) {
+            outcome = FetchResult.Outcome.TIMEOUT;
+            error = e;
+        }
+        catch(InterruptedIOException e) {
+            outcome = FetchResult.Outcome.INTERRUPTED;
+            error = e;
+        }
+        catch(ApiClient.HttpStatusException e) {
+            outcome = FetchResult.Outcome.HTTP_ERROR;
+            error = e;
+        }
+        catch(StatusStreamParser.MalformedStatusException e) {
+            outcome = FetchResult.Outcome.PARSE_ERROR;
+            error = e;
+        }
+        catch(IOException e) {
+            outcome = FetchResult.Outcome.NETWORK_ERROR;
+            error = e;
         }
         
-        JsonElement jelem = new JsonParser().parse(currentData);
-        JsonObject jobj = jelem.getAsJsonObject();
-        JsonArray servicesArr = jobj.getAsJsonArray("services");
-        JsonArray incidentsArr;
-        JsonArray updatesArr;
+        if(outcome != FetchResult.Outcome.INTERRUPTED && outcome != FetchResult.Outcome.RATE_LIMITED &&
+           outcome != FetchResult.Outcome.PARSE_ERROR) {
+            context.setNetworkUp(statusInfo != null);
+        }
         
-        String service, status;
-        HashMap<String, HashMap<String, ArrayList<HashMap<String, HashMap<String, String>>>>> statusInfo = new HashMap();
-        HashMap<String, ArrayList<HashMap<String, HashMap<String, String>>>> statusValues = new HashMap();
-        ArrayList<HashMap<String, HashMap<String, String>>> services = new ArrayList();
-        HashMap<String, HashMap<String, String>> incidents = new HashMap();
-        HashMap<String, String> content = new HashMap();
+        return new FetchResult(outcome, statusInfo, error, System.currentTimeMillis() - start, sent.get());
+    }
 
-        for(int i = 0; i < servicesArr.size(); i++) {
-            jobj = servicesArr.get(i).getAsJsonObject();
-            
-            service = formatOutput(jobj.get("name").toString());
-            status =  formatOutput(jobj.get("status").toString());       
+    /**
+     * Requests shard-data and parses it straight off the response stream.
+     *
+     * @param region The region to query.
+     * @param context The fetch context of the region, may be null.
+     * @param sent Counts the requests sent.
+     * @return The outcome of the request, without its latency.
+     * @throws IOException
+     */
+    private FetchResult readStatus(final String region, final FetchContext context, AtomicInteger sent) throws IOException {
+        final Shard previous = context == null ? null : context.getStatus();
+        
+        File source = getDebugSource();
+        if(source != null) {
+            try(InputStream in = new FileInputStream(source)) {
+                return publish(parseStatus(in, region), context, null, null, previous);
+            }
+        }
 
-            incidentsArr = jobj.getAsJsonArray("incidents");
-            
-            // If there are any incidents, store them.
-            if(incidentsArr.size() > 0) {
-                // Get each incident.
-                for(int j = 0; j < incidentsArr.size(); j++) {
-                    jobj = incidentsArr.get(j).getAsJsonObject();
-                    updatesArr = jobj.getAsJsonArray("updates");
-                    
-                    // Get information for each update.
-                    if(updatesArr.size() > 0) {
-                        for(int k = 0; k < updatesArr.size(); k++) {
-                            jobj = updatesArr.get(k).getAsJsonObject();
+        ApiClient.BodyReader<ParsedStatus> reader = new ApiClient.BodyReader<ParsedStatus>() {
+            @Override
+            public ParsedStatus read(InputStream in) throws IOException {
+                return parseStatus(in, region);
+            }
+        };
 
-                            // Add id
-                            content.put("id", formatOutput(jobj.get("id").toString()));
-                            // Add severity
-                            content.put("severity", formatOutput(jobj.get("severity").toString()));
-                            // Add updated_at
-                            content.put("updated_at", formatOutput(jobj.get("updated_at").toString()));
-                            // Add content
-                            content.put("content", formatOutput(jobj.get("content").toString()));
-                            
-                            incidents.put(service, (HashMap)content.clone());
-                            services.add((HashMap)incidents.clone());
-                        }
-                    }
-                }
+        ApiResponse<ParsedStatus> response = scheduledGet(region, buildHeaders(context), reader, sent);
+        for(int attempt = 1; response.isRateLimited(); attempt++) {
+            if(previous != null || attempt == MAX_RATE_LIMITED_ATTEMPTS) {
+                // Keep showing the last snapshot, if any; the scheduler
+                // holds the next request back until the limit resets.
+                return new FetchResult(FetchResult.Outcome.RATE_LIMITED, previous,
+                    previous == null ? new IOException("Rate limit exceeded for " + region) : null, -1);
             }
-            
-            Collections.reverse(services); // Flip incidents ArrayList to have the newest first.
-            statusValues.put(status, (ArrayList)services.clone());
-            services.clear(); // Make sure old incidents aren't copied if current service has no incidents.
-            statusInfo.put(service, (HashMap)statusValues.clone());
-            statusValues.clear(); // Make sure old statuses aren't copied if current service has no incidents.
+            response = scheduledGet(region, buildHeaders(context), reader, sent);
         }
-        
-        return statusInfo;
+
+        if(response.isNotModified() && previous != null) {
+            // Nothing changed since the last poll.
+            return new FetchResult(FetchResult.Outcome.UNCHANGED, previous, null, -1);
+        }
+
+        return publish(response.getBody(), context, response.getETag(), response.getLastModified(), previous);
     }
     
     /**
-     * Formats the status obtained from the League of Legends API to remove 
-     * surrounding quotations and begin with a capital letter.
+     * Publishes a parsed response to the region's fetch context.
      * 
-     * @param raw The raw status string that was parsed.
-     * @return A formatted status string.
+     * @param parsed The parsed response.
+     * @param context The fetch context of the region, may be null.
+     * @param eTag The ETag header value.
+     * @param lastModified The Last-Modified header value.
+     * @param previous The snapshot from before the request, may be null.
+     * @return An UNCHANGED result if the body was the one the previous
+     *         snapshot came from, an UPDATED result otherwise.
+     * @throws IOException if there was no body.
      */
-    private String formatOutput(String raw) {
-        // Remove quotes
-        String formatted = raw.replace("\"", "");
-        //Capitalize first letter
-        formatted = formatted.substring(0,1).toUpperCase() + formatted.substring(1);
+    private FetchResult publish(ParsedStatus parsed, FetchContext context, String eTag, String lastModified, Shard previous) throws IOException {
+        if(parsed == null) {
+            throw new IOException("No status data returned");
+        }
         
-        return formatted;
+        Shard statusInfo = parsed.status;
+        if(context != null) {
+            statusInfo = context.publish(parsed.hash, parsed.status, eTag, lastModified);
+        }
+        return updatedOrUnchanged(statusInfo, previous);
     }
     
     /**
-     * Performs a network check by attempting to connect to the API.
+     * Wraps a parsed snapshot in a result.
      * 
-     * @param region The current region.
-     * @return True if openStream() was successful, false otherwise.
-     * @throws IOException 
+     * @param statusInfo The parsed snapshot.
+     * @param previous The snapshot from before the request, may be null.
+     * @return An UNCHANGED result if the parser handed back the previous
+     *         snapshot, an UPDATED result otherwise.
      */
-    public boolean networkCheck(String region) throws IOException {
-        // Debug mode can be run offline.
-        if(DEBUG) {
-            return true;
-        }
+    private FetchResult updatedOrUnchanged(Shard statusInfo, Shard previous) {
+        FetchResult.Outcome outcome = statusInfo == previous ? FetchResult.Outcome.UNCHANGED : FetchResult.Outcome.UPDATED;
+        return new FetchResult(outcome, statusInfo, null, -1);
+    }
+
+    /**
+     * Parses a shard-data stream and hashes it on the way through, so the
+     * body is never held as a whole.  An unchanged body is normally caught
+     * by the 304 of a conditional request before it is sent; the hash only
+     * lets FetchContext keep the cached status when a server without
+     * validators sends the same body again.
+     *
+     * @param in The shard-data stream.
+     * @param region The region the data belongs to.
+     * @return The status of every service in the region with the hash of the body.
+     * @throws IOException
+     */
+    private static ParsedStatus parseStatus(InputStream in, String region) throws IOException {
+        MessageDigest digest = FetchContext.newDigest();
+        DigestInputStream hashing = new DigestInputStream(in, digest);
+        Shard statusInfo = StatusStreamParser.parse(hashing, StaticData.internRegion(region));
         
-        try {
-            getServerStatusData();
-            networkOK = true;
-            return true;
+        // The parser stops at the end of the JSON; hash whatever follows it.
+        // The stream is closed by ApiClient.
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        while(hashing.read(buffer) != -1) {
+            // Only read for the digest.
         }
-        catch(UnknownHostException e) {
-            System.out.println(e);
-            networkOK = false;
-            return false;
+        return new ParsedStatus(digest.digest(), statusInfo);
+    }
+
+    /**
+     * Gets the fetch context of a region, creating it if needed.
+     *
+     * @param region The region.
+     * @return The fetch context of the region.
+     */
+    private FetchContext getFetchContext(String region) {
+        String key = StaticData.internRegion(region);
+        FetchContext context = fetchContexts.get(key);
+        if(context == null) {
+            context = new FetchContext();
+            FetchContext existing = fetchContexts.putIfAbsent(key, context);
+            if(existing != null) {
+                context = existing;
+            }
         }
+        return context;
     }
     
     /**
-     * Gets the status of your connection to the status servers.
+     * Gets the status of your connection to a region's status server.
      * 
-     * @return True if a connection was made, false otherwise.
+     * @param region The region.
+     * @return False if the last poll of the region couldn't connect, true
+     *         otherwise.
      */
-    public boolean isNetworkUp() {
-        return networkOK;
+    public boolean isNetworkUp(String region) {
+        return getFetchContext(region).isNetworkUp();
     }
     
     /**
      * Toggles the state of debug mode.
      */
     public void toggleDebugMode() {
-        DEBUG = !DEBUG;
+        debug = !debug;
+        fetchContexts.clear();
     }
     
     /**
@@ -259,7 +401,7 @@ public class StatusParser {
      * @return True if debug mode is enabled, false otherwise.
      */
     public boolean getDebugStatus() {
-        return DEBUG;
+        return debug;
     }
     
     /**
@@ -268,52 +410,65 @@ public class StatusParser {
      * @param fileName An absolute path to a specified debug JSON file.
      */
     public void setDebugFile(String fileName) {
-        DEBUG_FILE = new File(fileName);
+        debugFile = new File(fileName);
+        fetchContexts.clear();
     }
     
     /**
-     * Pings the IP of the current region.
+     * Gets the file to read status data from instead of the API.
      * 
-     * @param ip the IP to check
-     * @return the ping value.
+     * @return The debug file, or null if debug mode is off.
      */
-    public String determinePing(String ip) {
-        if(ip.isEmpty()) {
-            System.out.println("PING NOT AVAILABLE");
-            ping = "Not Available";
-            return ping;
-        }
-        
-        String command = "ping " + ip;
-
-        try{
-            Process proc = Runtime.getRuntime().exec(command);
-            BufferedReader input = new BufferedReader(new InputStreamReader(proc.getInputStream()));
-            String line;
-            while((line = input.readLine()) != null) {
-                if(line.length() > 0 && line.contains("time=")) {
-                    System.out.println(line);
-                    input.close();
-                    String timeString = line.substring(line.indexOf("time"));
-                    String time = timeString.substring(timeString.indexOf("=") + 1, timeString.indexOf("ms") + 2);
-                    ping = time;
-                    return ping;
-                }
-            }
-        }
-        catch(Exception e){
-            System.out.println(e);
-        }
-
-        return "SERVERS ON FIRE";
+    private File getDebugSource() {
+        return debug ? debugFile : null;
+    }
+    
+    /**
+     * Gets the scheduler that paces API requests.
+     * 
+     * @return the request scheduler.
+     */
+    public RequestScheduler getScheduler() {
+        return scheduler;
+    }
+    
+    /**
+     * Gets the executor that enforces request deadlines and hedging.
+     * 
+     * @return the request executor.
+     */
+    public RequestExecutor getRequestExecutor() {
+        return requestExecutor;
     }
     
     /**
-     * Gets the last known ping value.
+     * Gets the layer that shares concurrent fetches of the same region.
      * 
-     * @return the last known ping value. 
+     * @return the single-flight layer.
      */
-    public String getPing() {
-        return ping;
+    public SingleFlight<String, FetchResult> getSingleFlight() {
+        return singleFlight;
+    }
+    
+    /**
+     * Gets the request and poll cycle counters.
+     * 
+     * @return the poll statistics.
+     */
+    public PollStats getPollStats() {
+        return pollStats;
+    }
+    
+    /**
+     * A parsed response body with its hash.
+     */
+    private static class ParsedStatus {
+        private final byte[] hash;
+        private final Shard status;
+
+        ParsedStatus(byte[] hash, Shard status) {
+            this.hash = hash;
+            this.status = status;
+        }
     }
 }
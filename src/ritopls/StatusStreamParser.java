@@ -0,0 +1,232 @@
+package ritopls;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Parses shard-data JSON straight off a stream with Gson's JsonReader.
+ * Services, incidents and updates are built as the tokens arrive, so the
+ * body is never held in memory as a String or as a JsonElement tree.
+ *
+ * @author Chris Meyers
+ */
+public class StatusStreamParser {
+
+    /**
+     * Parses a shard-data stream.  The stream is read but not closed.
+     *
+     * @param in The shard-data JSON stream.
+     * @param region The region the data belongs to.
+     * @return The status of every service in the region.
+     * @throws MalformedStatusException if the stream isn't valid shard-data.
+     * @throws IOException if the stream can't be read.
+     */
+    public static Shard parse(InputStream in, String region) throws IOException {
+        try {
+            return readShard(new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8)), region);
+        }
+        catch(MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            // JsonReader reports an unexpected token as an IllegalStateException.
+            throw new MalformedStatusException(region, e);
+        }
+    }
+
+    /**
+     * Reads a shard-data object, e.g. one embedded in the snapshot file.
+     *
+     * @param reader The reader, positioned at the start of the object.
+     * @param region The region the data belongs to.
+     * @return The status of every service in the region.
+     * @throws IOException if the object isn't valid shard-data JSON.
+     */
+    static Shard readShard(JsonReader reader, String region) throws IOException {
+        ArrayList<Service> services = new ArrayList<>();
+
+        reader.beginObject();
+        while(reader.hasNext()) {
+            if(reader.nextName().equals("services")) {
+                reader.beginArray();
+                while(reader.hasNext()) {
+                    services.add(readService(reader));
+                }
+                reader.endArray();
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new Shard(region, services);
+    }
+
+    /**
+     * Reads a single service object.
+     *
+     * @param reader The reader, positioned at the start of a service.
+     * @return The parsed service.
+     * @throws IOException
+     */
+    private static Service readService(JsonReader reader) throws IOException {
+        String name = "";
+        Status status = Status.UNKNOWN;
+        ArrayList<Incident> incidents = new ArrayList<>();
+
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "name":
+                    // Known services come back as their shared constant,
+                    // which is already capitalised.
+                    name = formatOutput(StaticData.internServiceName(nextString(reader)));
+                    break;
+                case "status":
+                    status = Status.fromString(nextString(reader));
+                    break;
+                case "incidents":
+                    reader.beginArray();
+                    while(reader.hasNext()) {
+                        incidents.add(readIncident(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new Service(name, status, incidents);
+    }
+
+    /**
+     * Reads a single incident object.
+     *
+     * @param reader The reader, positioned at the start of an incident.
+     * @return The parsed incident.
+     * @throws IOException
+     */
+    private static Incident readIncident(JsonReader reader) throws IOException {
+        String id = "", createdAt = "";
+        boolean active = false;
+        ArrayList<IncidentUpdate> updates = new ArrayList<>();
+
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "id":
+                    id = nextString(reader);
+                    break;
+                case "active":
+                    active = reader.nextBoolean();
+                    break;
+                case "created_at":
+                    createdAt = nextString(reader);
+                    break;
+                case "updates":
+                    reader.beginArray();
+                    while(reader.hasNext()) {
+                        updates.add(readUpdate(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new Incident(id, active, createdAt, updates);
+    }
+
+    /**
+     * Reads a single incident update object.
+     *
+     * @param reader The reader, positioned at the start of an update.
+     * @return The parsed update.
+     * @throws IOException
+     */
+    private static IncidentUpdate readUpdate(JsonReader reader) throws IOException {
+        String id = "", updatedAt = "", content = "";
+        Severity severity = Severity.UNKNOWN;
+
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "id":
+                    id = nextString(reader);
+                    break;
+                case "severity":
+                    severity = Severity.fromString(nextString(reader));
+                    break;
+                case "updated_at":
+                    updatedAt = nextString(reader);
+                    break;
+                case "content":
+                    content = nextString(reader);
+                    if(content.indexOf("\r\n") >= 0) {
+                        // Line breaks were always stripped from the raw payload.
+                        content = content.replace("\r\n", "");
+                    }
+                    content = formatOutput(content);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new IncidentUpdate(id, severity, updatedAt, content);
+    }
+
+    /**
+     * Reads a string, number or null value as a String.
+     *
+     * @param reader The reader, positioned at a value.
+     * @return The value as a String, empty for null.
+     * @throws IOException
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        if(reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return "";
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Formats a value obtained from the League of Legends API to begin with
+     * a capital letter.  A value that already does is returned as it is,
+     * so the usual case makes no new String.
+     *
+     * @param raw The raw value that was parsed.
+     * @return A formatted value.
+     */
+    private static String formatOutput(String raw) {
+        if(raw.isEmpty() || !Character.isLowerCase(raw.charAt(0))) {
+            return raw;
+        }
+        return Character.toUpperCase(raw.charAt(0)) + raw.substring(1);
+    }
+
+    /**
+     * Thrown when a response body isn't valid shard-data.
+     */
+    public static class MalformedStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        MalformedStatusException(String region, Throwable cause) {
+            super("Invalid shard-data for " + StaticData.displayRegion(region) + ": " + cause.getMessage(), cause);
+        }
+    }
+}
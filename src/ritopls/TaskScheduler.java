@@ -0,0 +1,98 @@
+package ritopls;
+
+/**
+ * Runs the periodic tasks of the program.  Implemented by PollScheduler,
+ * which times every task on one thread and runs the ones that may block
+ * on a bounded pool of platform worker threads, and by
+ * ThreadPerTaskScheduler, which gives every task a thread of its own
+ * (virtual threads when ExecutionMode.VIRTUAL is in use).
+ *
+ * Repeating tasks are timed against absolute deadlines: each run is due
+ * one interval after the previous run was due, not after it finished.
+ *
+ * @author Chris Meyers
+ */
+public interface TaskScheduler {
+
+    /**
+     * Interval of a repeating task, asked for again before every run so it
+     * can change from one run to the next.
+     */
+    interface Interval {
+        long nextMillis();
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    interface Task {
+
+        /**
+         * Stops the task.  A run in progress is interrupted.
+         */
+        void cancel();
+
+        /**
+         * Re-times the pending run against the current interval, e.g. after
+         * the polling rate changed.
+         */
+        void reschedule();
+
+        /**
+         * Gets the time left until the next run.
+         *
+         * @return The delay in millis, 0 if a run is due or in progress.
+         */
+        long getDelayMillis();
+    }
+
+    /**
+     * Runs a task repeatedly, the first time after the given delay.  The
+     * task may block.
+     *
+     * @param task The task to run.
+     * @param initialDelayMillis The delay before the first run.
+     * @param interval The time between two runs.
+     * @return A handle to cancel or reschedule the task.
+     */
+    Task scheduleRepeating(Runnable task, long initialDelayMillis, Interval interval);
+
+    /**
+     * Runs a task at a fixed rate, starting now.  The task may block.
+     *
+     * @param task The task to run.
+     * @param periodMillis The time between two runs.
+     * @return A handle to cancel the task.
+     */
+    Task scheduleAtFixedRate(Runnable task, long periodMillis);
+
+    /**
+     * Runs a short task that never blocks at a fixed rate, starting now.
+     * It may run on the thread that times every other task, so it keeps
+     * its rate however many blocking tasks are running.
+     *
+     * @param task The task to run.
+     * @param periodMillis The time between two runs.
+     * @return A handle to cancel the task.
+     */
+    Task scheduleTick(Runnable task, long periodMillis);
+
+    /**
+     * Runs a task once, as soon as possible.  The task may block.
+     *
+     * @param task The task to run.
+     */
+    void execute(Runnable task);
+
+    /**
+     * Stops every task.
+     */
+    void shutdown();
+
+    /**
+     * Describes how tasks are run, for the Diagnostics window.
+     *
+     * @return A short description.
+     */
+    String getDescription();
+}
@@ -0,0 +1,217 @@
+package ritopls;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gives every periodic task a thread of its own that simply sleeps until
+ * the next run is due, so each task can block (on a URLConnection read, a
+ * probe, ...) without holding up any other.  Meant to be used with
+ * virtual threads, where a blocked thread costs almost nothing; see
+ * ExecutionMode.
+ *
+ * Timing follows the same absolute deadlines as PollScheduler.  Waiting is
+ * done on a ReentrantLock rather than a monitor so a waiting virtual
+ * thread never pins its carrier thread.
+ *
+ * @author Chris Meyers
+ */
+public class ThreadPerTaskScheduler implements TaskScheduler {
+    private final ThreadFactory factory;
+    private final String description;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final HashSet<LoopTask> tasks = new HashSet<>();
+    private boolean shutdown;
+
+    /**
+     * ThreadPerTaskScheduler constructor.
+     *
+     * @param factory The factory that makes a thread for every task.
+     * @param description How the threads are made, for the Diagnostics window.
+     */
+    public ThreadPerTaskScheduler(ThreadFactory factory, String description) {
+        this.factory = factory;
+        this.description = description;
+    }
+
+    @Override
+    public Task scheduleRepeating(Runnable task, long initialDelayMillis, Interval interval) {
+        LoopTask loop = new LoopTask(task, initialDelayMillis, interval);
+
+        lock.lock();
+        try {
+            if(shutdown) {
+                throw new IllegalStateException("Scheduler is shut down");
+            }
+            tasks.add(loop);
+        }
+        finally {
+            lock.unlock();
+        }
+
+        loop.thread.start();
+        return loop;
+    }
+
+    @Override
+    public Task scheduleAtFixedRate(Runnable task, final long periodMillis) {
+        return scheduleRepeating(task, 0, new Interval() {
+            @Override
+            public long nextMillis() {
+                return periodMillis;
+            }
+        });
+    }
+
+    @Override
+    public Task scheduleTick(Runnable task, long periodMillis) {
+        return scheduleAtFixedRate(task, periodMillis);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        factory.newThread(task).start();
+    }
+
+    @Override
+    public void shutdown() {
+        ArrayList<LoopTask> running;
+
+        lock.lock();
+        try {
+            shutdown = true;
+            running = new ArrayList<>(tasks);
+        }
+        finally {
+            lock.unlock();
+        }
+
+        for(LoopTask task : running) {
+            task.cancel();
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    private void finished(LoopTask task) {
+        lock.lock();
+        try {
+            tasks.remove(task);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A task with its own thread looping over sleep and run.
+     */
+    private class LoopTask implements Task, Runnable {
+        private final Runnable task;
+        private final Interval interval;
+        private final Thread thread;
+        private final ReentrantLock taskLock = new ReentrantLock();
+        private final Condition changed = taskLock.newCondition();
+        private long nextRunNanos;
+        private long lastRunNanos;
+        private boolean ran;
+        private boolean running;
+        private boolean cancelled;
+
+        LoopTask(Runnable task, long initialDelayMillis, Interval interval) {
+            this.task = task;
+            this.interval = interval;
+            this.nextRunNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(initialDelayMillis);
+            this.thread = factory.newThread(this);
+        }
+
+        @Override
+        public void run() {
+            taskLock.lock();
+            try {
+                while(!cancelled) {
+                    long wait = nextRunNanos - System.nanoTime();
+                    if(wait > 0) {
+                        changed.awaitNanos(wait);
+                        continue;
+                    }
+
+                    lastRunNanos = nextRunNanos;
+                    ran = true;
+                    running = true;
+                    taskLock.unlock();
+                    try {
+                        task.run();
+                    }
+                    catch(RuntimeException e) {
+                        // Keep the schedule going; one bad run shouldn't stop polling.
+                        System.out.println(e);
+                    }
+                    finally {
+                        taskLock.lock();
+                        running = false;
+                    }
+
+                    if(!cancelled) {
+                        // Any interrupt was meant for the run that just ended.
+                        Thread.interrupted();
+                        nextRunNanos = Math.max(System.nanoTime(), lastRunNanos + TimeUnit.MILLISECONDS.toNanos(interval.nextMillis()));
+                    }
+                }
+            }
+            catch(InterruptedException e) {}
+            finally {
+                taskLock.unlock();
+                finished(this);
+            }
+        }
+
+        @Override
+        public void reschedule() {
+            taskLock.lock();
+            try {
+                if(cancelled || running || !ran) {
+                    return;
+                }
+                nextRunNanos = Math.max(System.nanoTime(), lastRunNanos + TimeUnit.MILLISECONDS.toNanos(interval.nextMillis()));
+                changed.signalAll();
+            }
+            finally {
+                taskLock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            taskLock.lock();
+            try {
+                cancelled = true;
+            }
+            finally {
+                taskLock.unlock();
+            }
+            thread.interrupt();
+        }
+
+        @Override
+        public long getDelayMillis() {
+            taskLock.lock();
+            try {
+                if(running) {
+                    return 0;
+                }
+                return Math.max(0, TimeUnit.NANOSECONDS.toMillis(nextRunNanos - System.nanoTime()));
+            }
+            finally {
+                taskLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package ritopls;
+
+import java.awt.Color;
+
+/**
+ * Everything the main window shows while polling, worked out ahead of time
+ * so it can be applied on the EDT in one go.  Built off the EDT by
+ * StatusHandler and drawn by the RenderPipeline.
+ *
+ * @author Chris Meyers
+ */
+public class ViewModel {
+    private final AppState state;
+    private final String[] statusTexts;
+    private final Color[] statusColors;
+    private final String[] buttonTexts;
+    private final String textAreaText;
+    private final Color textAreaColor;
+    private final String iconName;
+    private final String pingPrefix;
+    private final String pingText;
+    private final Color pingColor;
+    private final String countdownText;
+    private final String toolTip;
+
+    /**
+     * ViewModel constructor.
+     *
+     * @param state The state the view was built from.
+     * @param statusTexts The status label texts, or null if the region
+     *                    hasn't been polled yet.
+     * @param statusColors The status label colours.
+     * @param buttonTexts The incident button symbols, null for a service
+     *                    without incidents.
+     * @param textAreaText The text of the incident box.
+     * @param textAreaColor The colour of the incident box text.
+     * @param iconName The form icon resource name.
+     * @param pingPrefix The text in front of the ping value.
+     * @param pingText The ping value.
+     * @param pingColor The colour of the ping value.
+     * @param countdownText The polling info text, or null if not known.
+     * @param toolTip The tray icon tooltip.
+     */
+    public ViewModel(AppState state, String[] statusTexts, Color[] statusColors, String[] buttonTexts,
+                     String textAreaText, Color textAreaColor, String iconName,
+                     String pingPrefix, String pingText, Color pingColor, String countdownText, String toolTip) {
+        this.state = state;
+        this.statusTexts = statusTexts;
+        this.statusColors = statusColors;
+        this.buttonTexts = buttonTexts;
+        this.textAreaText = textAreaText;
+        this.textAreaColor = textAreaColor;
+        this.iconName = iconName;
+        this.pingPrefix = pingPrefix;
+        this.pingText = pingText;
+        this.pingColor = pingColor;
+        this.countdownText = countdownText;
+        this.toolTip = toolTip;
+    }
+
+    /**
+     * Gets the state the view was built from.
+     *
+     * @return The state.
+     */
+    public AppState getState() {
+        return state;
+    }
+
+    /**
+     * Checks if the view has statuses to show.
+     *
+     * @return False if the region hasn't been polled yet.
+     */
+    public boolean hasStatus() {
+        return statusTexts != null;
+    }
+
+    /**
+     * Gets the text of a status label.
+     *
+     * @param service The service index.
+     * @return The status, or null if the region doesn't report the service.
+     */
+    public String getStatusText(int service) {
+        return statusTexts[service];
+    }
+
+    /**
+     * Gets the colour of a status label.
+     *
+     * @param service The service index.
+     * @return The colour of the status.
+     */
+    public Color getStatusColor(int service) {
+        return statusColors[service];
+    }
+
+    /**
+     * Gets the symbol of an incident button.
+     *
+     * @param service The service index.
+     * @return The symbol, or null if the service has no incidents.
+     */
+    public String getButtonText(int service) {
+        return buttonTexts[service];
+    }
+
+    /**
+     * Gets the text of the incident box.
+     *
+     * @return The incidents of the selected service, or a hint.
+     */
+    public String getTextAreaText() {
+        return textAreaText;
+    }
+
+    /**
+     * Gets the colour of the incident box text.
+     *
+     * @return The text colour.
+     */
+    public Color getTextAreaColor() {
+        return textAreaColor;
+    }
+
+    /**
+     * Gets the form icon to show.
+     *
+     * @return The icon resource name.
+     */
+    public String getIconName() {
+        return iconName;
+    }
+
+    /**
+     * Gets the text in front of the ping value.
+     *
+     * @return The ping label text.
+     */
+    public String getPingPrefix() {
+        return pingPrefix;
+    }
+
+    /**
+     * Gets the ping value.
+     *
+     * @return The latency of the region, or a message.
+     */
+    public String getPingText() {
+        return pingText;
+    }
+
+    /**
+     * Gets the colour of the ping value.
+     *
+     * @return The ping colour.
+     */
+    public Color getPingColor() {
+        return pingColor;
+    }
+
+    /**
+     * Gets the polling info text.
+     *
+     * @return The text, or null if not known.
+     */
+    public String getCountdownText() {
+        return countdownText;
+    }
+
+    /**
+     * Gets the tray icon tooltip.
+     *
+     * @return The tooltip.
+     */
+    public String getToolTip() {
+        return toolTip;
+    }
+}